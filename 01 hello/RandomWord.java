@@ -8,8 +8,51 @@ import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class RandomWord {
+    // ranges per worker, so ranges of different token density still balance
+    private static final int RANGES_PER_WORKER = 4;
+    // a range is mapped at once, so it must stay well under 2 GB
+    private static final long MAX_RANGE_BYTES = 1L << 30;
+
+    // tokens of one byte range, and the one it picked uniformly
+    private static class Range {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private long count;
+        private byte[] champion;
+
+        Range(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // usage: RandomWord                  (reads tokens from standard input)
+    //        RandomWord <file> ...       (maps the files and scans them in parallel)
     public static void main(String[] args) {
+        if (args.length > 0) {
+            StdOut.println(championOfFiles(args, Runtime.getRuntime().availableProcessors()));
+            return;
+        }
+
         int count = 0;
         String champion = "";
         while (!StdIn.isEmpty()) {
@@ -23,4 +66,148 @@ public class RandomWord {
 
         StdOut.println(champion);
     }
+
+    // a token chosen uniformly from all whitespace-separated tokens of the
+    // files, "" if there are none: every range keeps a uniform champion of
+    // its own tokens, and merging keeps range r's champion with probability
+    // count_r / (tokens merged so far), so each token ends up with 1 / total
+    private static String championOfFiles(String[] files, int parallelism) {
+        List<FileChannel> channels = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        SplittableRandom root = new SplittableRandom(StdRandom.uniformLong(Long.MAX_VALUE));
+
+        try {
+            List<Range> ranges = new ArrayList<>();
+            for (String file : files) {
+                FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+                channels.add(channel);
+                split(channel, parallelism * RANGES_PER_WORKER, ranges);
+            }
+
+            List<Future<?>> scans = new ArrayList<>();
+            for (Range range : ranges) {
+                SplittableRandom random = root.split();
+                scans.add(pool.submit(() -> scan(range, random)));
+            }
+            for (Future<?> scan : scans) {
+                scan.get();
+            }
+
+            long total = 0;
+            byte[] champion = null;
+            for (Range range : ranges) {
+                if (range.count == 0) continue;
+                total += range.count;
+                if (root.nextLong(total) < range.count) {
+                    champion = range.champion;
+                }
+            }
+
+            return champion == null ? "" : new String(champion, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+            for (FileChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // nothing was written
+                }
+            }
+        }
+    }
+
+    // splits the file into about count ranges, each boundary moved forward
+    // to the next whitespace byte so that no token is cut in two
+    private static void split(FileChannel channel, int count, List<Range> ranges) throws IOException {
+        long size = channel.size();
+        count = (int) Math.max(count, (size + MAX_RANGE_BYTES - 1) / MAX_RANGE_BYTES);
+
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+
+        for (int i = 1; i <= count && start < size; i++) {
+            long end = i == count ? size : Math.max(start, size / count * i);
+
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int j = 0;
+                while (j < read && !isWhitespace(probe.get(j) & 0xFF)) {
+                    j++;
+                }
+                end += j;
+                if (j < read) {
+                    break;
+                }
+            }
+
+            if (end > start) {
+                ranges.add(new Range(channel, start, end));
+                start = end;
+            }
+        }
+    }
+
+    // counts the tokens of the range and picks one with a single-slot
+    // Algorithm L reservoir: the gap to the next replacement is drawn from
+    // its geometric distribution, so there are O(log n) draws, not n
+    private static void scan(Range range, SplittableRandom random) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = range.channel.map(FileChannel.MapMode.READ_ONLY, range.start, range.end - range.start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int limit = buffer.limit();
+        long count = 0;
+        long next = 0;
+        double w = 1;
+        int i = 0;
+
+        while (true) {
+            while (i < limit && isWhitespace(buffer.get(i) & 0xFF)) {
+                i++;
+            }
+            if (i == limit) {
+                break;
+            }
+
+            int tokenStart = i;
+            while (i < limit && !isWhitespace(buffer.get(i) & 0xFF)) {
+                i++;
+            }
+
+            if (count == next) {
+                range.champion = new byte[i - tokenStart];
+                for (int j = 0; j < range.champion.length; j++) {
+                    range.champion[j] = buffer.get(tokenStart + j);
+                }
+                w *= random.nextDouble();
+                double skip = Math.floor(Math.log(random.nextDouble()) / Math.log1p(-w));
+                next = skip >= Long.MAX_VALUE - count ? Long.MAX_VALUE : count + 1 + (long) skip;
+            }
+            count++;
+        }
+
+        range.count = count;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
 }
@@ -0,0 +1,206 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ConcurrentPercolation {
+    private final int realSize;
+    private final ConcurrentUF unionFindImpl;
+    // site p is bit (p % 64) of openBits[p / 64]
+    private final AtomicLongArray openBits;
+    private final AtomicInteger openSites;
+
+    // creates n-by-n grid, with all sites initially blocked
+    public ConcurrentPercolation(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Percolation requires n > 0");
+        }
+        if (n > 46340) {
+            throw new IllegalArgumentException("Percolation requires n <= 46340");
+        }
+
+        realSize = n;
+        unionFindImpl = new ConcurrentUF(n * n + 2);
+        openBits = new AtomicLongArray((n * n + 63) >>> 6);
+        openSites = new AtomicInteger();
+    }
+
+    // opens the site (row, col) if it is not open already
+    public void open(int row, int col) {
+        validate(row, col);
+        openSite((row - 1) * realSize + (col - 1));
+    }
+
+    // opens the site with 0-based row-major index (row - 1) * n + (col - 1)
+    public void open(int site) {
+        if (site < 0 || site >= realSize * realSize) {
+            throw new IllegalArgumentException("site must be in the range of [0, n * n)");
+        }
+        openSite(site);
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        validate(row, col);
+        return isOpenSite((row - 1) * realSize + (col - 1));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        validate(row, col);
+        return unionFindImpl.connected((row - 1) * realSize + (col - 1), realSize * realSize);
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return openSites.get();
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return unionFindImpl.connected(realSize * realSize, realSize * realSize + 1);
+    }
+
+    private void openSite(int site) {
+        long mask = 1L << site;
+        long old = openBits.getAndAccumulate(site >>> 6, mask, (a, b) -> a | b);
+
+        // only the thread that set the bit links the site
+        if ((old & mask) != 0) {
+            return;
+        }
+        openSites.incrementAndGet();
+
+        // of two neighbours opened at the same time, each sets its own bit
+        // before reading the other's, so at least one of them sees both open
+        int row = site / realSize;
+        int col = site - row * realSize;
+
+        // up
+        if (row == 0) {
+            unionFindImpl.union(site, realSize * realSize);
+        } else if (isOpenSite(site - realSize)) {
+            unionFindImpl.union(site, site - realSize);
+        }
+
+        // down
+        if (row == realSize - 1) {
+            unionFindImpl.union(site, realSize * realSize + 1);
+        } else if (isOpenSite(site + realSize)) {
+            unionFindImpl.union(site, site + realSize);
+        }
+
+        // left
+        if (col > 0 && isOpenSite(site - 1)) {
+            unionFindImpl.union(site, site - 1);
+        }
+
+        // right
+        if (col < realSize - 1 && isOpenSite(site + 1)) {
+            unionFindImpl.union(site, site + 1);
+        }
+    }
+
+    private boolean isOpenSite(int site) {
+        return (openBits.get(site >>> 6) & (1L << site)) != 0;
+    }
+
+    private void validate(int row, int col) {
+        if (row < 1 || row > realSize || col < 1 || col > realSize)
+            throw new IllegalArgumentException("row and col must be in the range of [1, n]");
+    }
+
+    // stress test: opens a random set of sites from many threads, every site
+    // twice, while readers poll percolates(), then compares every site with a
+    // sequential Percolation fed the same sites
+    // usage: ConcurrentPercolation [n] [threads] [rounds]
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        SplittableRandom random = new SplittableRandom(42);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+
+        try {
+            for (int round = 0; round < rounds; round++) {
+                // open a fraction around the threshold so both outcomes occur
+                double fraction = 0.55 + 0.1 * random.nextDouble();
+                int[] sites = new int[n * n];
+                for (int i = 0; i < sites.length; i++) {
+                    sites[i] = i;
+                }
+                int count = (int) (fraction * sites.length);
+                for (int i = 0; i < count; i++) {
+                    int j = i + random.nextInt(sites.length - i);
+                    int temp = sites[i];
+                    sites[i] = sites[j];
+                    sites[j] = temp;
+                }
+
+                ConcurrentPercolation concurrent = new ConcurrentPercolation(n);
+                Percolation sequential = new Percolation(n);
+                for (int i = 0; i < count; i++) {
+                    sequential.open(sites[i]);
+                }
+
+                List<Future<?>> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int first = t;
+                    workers.add(pool.submit(() -> {
+                        // each site is opened by two different threads
+                        for (int i = first; i < count; i += threads) {
+                            concurrent.open(sites[i]);
+                            concurrent.open(sites[(i + count / 2) % count]);
+                        }
+                    }));
+                }
+
+                // percolation can only go from false to true while opening
+                Future<Boolean> reader = pool.submit(() -> {
+                    boolean seen = false;
+                    for (int i = 0; i < 10000; i++) {
+                        boolean now = concurrent.percolates();
+                        if (seen && !now) return false;
+                        seen = now;
+                    }
+                    return true;
+                });
+
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+                boolean monotonic = reader.get();
+
+                int mismatches = 0;
+                for (int row = 1; row <= n; row++) {
+                    for (int col = 1; col <= n; col++) {
+                        if (concurrent.isOpen(row, col) != sequential.isOpen(row, col)
+                                || concurrent.isFull(row, col) != sequential.isFull(row, col)) {
+                            mismatches++;
+                        }
+                    }
+                }
+
+                boolean pass = monotonic
+                        && mismatches == 0
+                        && concurrent.numberOfOpenSites() == sequential.openSiteCount()
+                        && concurrent.percolates() == sequential.percolates();
+
+                StdOut.println("round " + round + ": open = " + concurrent.numberOfOpenSites()
+                        + ", percolates = " + concurrent.percolates()
+                        + ", mismatches = " + mismatches
+                        + (pass ? " --- Test Pass ---" : " --- Test FAIL ---"));
+                assert pass;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
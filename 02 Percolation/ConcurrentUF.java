@@ -0,0 +1,102 @@
+/* *****************************************************************************
+ *  Lock-free union-find shared by the threads of ConcurrentPercolation.
+ **************************************************************************** */
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// safe to call from many threads at once: roots are linked with a CAS and
+// path halving uses plain writes, which may race but always store an ancestor
+class ConcurrentUF implements IUnionFind {
+    private final AtomicIntegerArray parents;
+
+    ConcurrentUF(int n) {
+        parents = new AtomicIntegerArray(n);
+        reset();
+    }
+
+    // not safe to call while other threads use the structure
+    public void reset() {
+        for (int i = 0; i < parents.length(); i++) {
+            parents.set(i, i);
+        }
+    }
+
+    public void union(int p, int q) {
+        while (true) {
+            int firstRoot = find(p);
+            int secondRoot = find(q);
+
+            if (firstRoot == secondRoot) {
+                return;
+            }
+
+            // link the root with the lower pseudo-random priority under the other
+            if (priority(firstRoot) > priority(secondRoot)) {
+                int temp = firstRoot;
+                firstRoot = secondRoot;
+                secondRoot = temp;
+            }
+
+            if (parents.compareAndSet(firstRoot, firstRoot, secondRoot)) {
+                return;
+            }
+        }
+    }
+
+    public boolean connected(int p, int q) {
+        while (true) {
+            int firstRoot = find(p);
+            int secondRoot = find(q);
+
+            if (firstRoot == secondRoot) {
+                return true;
+            }
+
+            // a root never becomes a root again, so if it still is one the
+            // two sites were apart when secondRoot was found
+            if (parents.get(firstRoot) == firstRoot) {
+                return false;
+            }
+        }
+    }
+
+    public int find(int p) {
+        validate(p);
+
+        while (true) {
+            int parent = parents.get(p);
+
+            if (parent == p) {
+                return p;
+            }
+
+            int grandparent = parents.get(parent);
+            if (grandparent != parent) {
+                parents.setPlain(p, grandparent);
+            }
+
+            p = grandparent;
+        }
+    }
+
+    public int pathLength(int p) {
+        validate(p);
+
+        int length = 0;
+        for (int parent = parents.get(p); parent != p; parent = parents.get(p)) {
+            p = parent;
+            length++;
+        }
+
+        return length;
+    }
+
+    // a fixed bijective mix of the index, so linking behaves like random linking
+    private static int priority(int p) {
+        int h = p * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= parents.length()) throw new IllegalArgumentException("p is out of bounds");
+    }
+}
@@ -0,0 +1,18 @@
+/* *****************************************************************************
+ *  The union-find operations Percolation and its engines are built on.
+ **************************************************************************** */
+interface IUnionFind {
+    void union(int p, int q);
+
+    boolean connected(int p, int q);
+
+    // identifier of the component containing p, the same for all its members
+    int find(int p);
+
+    // puts every element back in its own component
+    void reset();
+
+    // number of parent links from p to the root of its tree, without changing
+    // the structure, or -1 if the implementation cannot tell
+    int pathLength(int p);
+}
@@ -0,0 +1,198 @@
+/* *****************************************************************************
+ *  Compares the site layouts of Percolation: opens every site of an n-by-n
+ *  grid in the order of a workload, checking percolates() after each open,
+ *  and reports the time per open for each layout and its speedup over
+ *  row-major. The workloads are
+ *
+ *    random   one random permutation of the sites; most opens have no open
+ *             neighbour until late, so few of them union anything
+ *    rows     a sweep row by row; every open unions with its left and up
+ *             neighbours, the up one a whole row away in row-major order
+ *    columns  a sweep column by column; the same unions, but consecutive
+ *             opens are a row apart in row-major order
+ *    cluster  Eden growth from the centre: each open is a random site of
+ *             the cluster's boundary, so every open after the seed unions
+ *             with a neighbour, and the boundary spans many rows
+ *
+ *  Each layout runs the workload the given number of times after a warmup;
+ *  the mean and standard deviation of the time per open are reported with
+ *  the count, so a speedup can be told apart from run-to-run noise.
+ *
+ *  The JVM cannot read hardware counters, so the time per open stands in for
+ *  the cache misses; to count them directly run one layout at a time under
+ *  perf, e.g.
+ *
+ *    perf stat -e cache-misses,LLC-load-misses \
+ *        java -Dbenchmark.layouts=MortonLayout -Dbenchmark.workloads=cluster \
+ *        LayoutBenchmark 4096
+ *
+ *  usage: java LayoutBenchmark [n ...]                   (default 4096)
+ *         -Dbenchmark.layouts=<type,...>   (default all three layouts)
+ *         -Dbenchmark.workloads=<workload,...>   (default all four workloads)
+ *         -Dbenchmark.uf=<uf type>         (default MyWeightedPathHalvingUF)
+ *         -Dbenchmark.sites=<site set type>      (default BitSiteSet)
+ *         -Dbenchmark.iterations=<measured runs> (default 5)
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+public class LayoutBenchmark {
+    private static final String[] LAYOUTS =
+            System.getProperty("benchmark.layouts", "RowMajorLayout,TiledLayout,MortonLayout").split(",");
+    private static final String[] WORKLOADS =
+            System.getProperty("benchmark.workloads", "random,rows,columns,cluster").split(",");
+    private static final String UF = System.getProperty("benchmark.uf", "MyWeightedPathHalvingUF");
+    private static final String SITES = System.getProperty("benchmark.sites", "BitSiteSet");
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 5);
+    private static final int WARMUP_ITERATIONS = 1;
+    private static final long SEED = 20240101L;
+
+    // nanoseconds per open of each measured run
+    private static double[] run(int n, String layout, int[] sites) {
+        Percolation percolation = new Percolation(n, UF, SITES, false, layout);
+        double[] nanos = new double[ITERATIONS];
+
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS + ITERATIONS; iteration++) {
+            percolation.reset();
+            long start = System.nanoTime();
+
+            for (int site : sites) {
+                percolation.open(site);
+                percolation.percolates();
+            }
+
+            if (iteration >= WARMUP_ITERATIONS) {
+                nanos[iteration - WARMUP_ITERATIONS] = (System.nanoTime() - start) / (double) sites.length;
+            }
+        }
+
+        return nanos;
+    }
+
+    // the row-major sites of the grid in the order the workload opens them
+    private static int[] workload(int n, String name) {
+        int[] sites = new int[n * n];
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        switch (name) {
+            case "random":
+                for (int i = 0; i < sites.length; i++) {
+                    sites[i] = i;
+                }
+                for (int i = sites.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int temp = sites[i];
+                    sites[i] = sites[j];
+                    sites[j] = temp;
+                }
+                return sites;
+            case "rows":
+                for (int i = 0; i < sites.length; i++) {
+                    sites[i] = i;
+                }
+                return sites;
+            case "columns":
+                for (int i = 0; i < sites.length; i++) {
+                    sites[i] = (i % n) * n + i / n;
+                }
+                return sites;
+            case "cluster":
+                return cluster(n, random, sites);
+            default:
+                throw new IllegalArgumentException("LayoutBenchmark: Unrecognized workload");
+        }
+    }
+
+    // grows a cluster from the centre until it fills the grid, each step
+    // taking a random site of the boundary; the boundary is kept in the
+    // tail of sites, after the sites already taken
+    private static int[] cluster(int n, SplittableRandom random, int[] sites) {
+        boolean[] seen = new boolean[n * n];
+        int taken = 0;
+        int end = 0;
+
+        int seed = (n / 2) * n + n / 2;
+        seen[seed] = true;
+        sites[end++] = seed;
+
+        while (taken < end) {
+            int pick = taken + random.nextInt(end - taken);
+            int site = sites[pick];
+            sites[pick] = sites[taken];
+            sites[taken++] = site;
+
+            int row = site / n;
+            int col = site % n;
+            if (row > 0 && !seen[site - n]) {
+                seen[site - n] = true;
+                sites[end++] = site - n;
+            }
+            if (row < n - 1 && !seen[site + n]) {
+                seen[site + n] = true;
+                sites[end++] = site + n;
+            }
+            if (col > 0 && !seen[site - 1]) {
+                seen[site - 1] = true;
+                sites[end++] = site - 1;
+            }
+            if (col < n - 1 && !seen[site + 1]) {
+                seen[site + 1] = true;
+                sites[end++] = site + 1;
+            }
+        }
+
+        return sites;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double stddev(double[] values) {
+        if (values.length < 2) {
+            return Double.NaN;
+        }
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = {4096};
+
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        StdOut.printf("%-8s %-16s %6s %5s %12s %10s %10s%n",
+                "workload", "layout", "n", "runs", "ns/open", "stddev", "speedup");
+
+        for (int n : sizes) {
+            for (String workload : WORKLOADS) {
+                int[] sites = workload(n, workload);
+
+                double baseline = Double.NaN;
+                for (String layout : LAYOUTS) {
+                    double[] nanos = run(n, layout, sites);
+                    double mean = mean(nanos);
+                    if (layout.equals("RowMajorLayout")) {
+                        baseline = mean;
+                    }
+                    StdOut.printf("%-8s %-16s %6d %5d %12.1f %10.1f %10.2f%n",
+                            workload, layout, n, nanos.length, mean, stddev(nanos), baseline / mean);
+                }
+            }
+        }
+    }
+}
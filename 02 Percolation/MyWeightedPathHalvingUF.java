@@ -0,0 +1,79 @@
+/* *****************************************************************************
+ *  Weighted quick-union with path halving: a root stores the negated size of
+ *  its tree in its parent link, so there is no separate size array.
+ **************************************************************************** */
+import java.util.Arrays;
+
+class MyWeightedPathHalvingUF implements IUnionFind {
+    // parents[p] >= 0 is the parent of p, parents[root] < 0 is -(size of its tree)
+    private final int[] parents;
+
+    MyWeightedPathHalvingUF(int n) {
+        parents = new int[n];
+        reset();
+    }
+
+    public void reset() {
+        Arrays.fill(parents, -1);
+    }
+
+    public void union(int p, int q) {
+        int firstRoot = find(p);
+        int secondRoot = find(q);
+
+        if (firstRoot == secondRoot) {
+            return;
+        }
+
+        // sizes are negative, so the smaller value is the bigger tree
+        if (parents[firstRoot] < parents[secondRoot]) {
+            parents[firstRoot] += parents[secondRoot];
+            parents[secondRoot] = firstRoot;
+        } else {
+            parents[secondRoot] += parents[firstRoot];
+            parents[firstRoot] = secondRoot;
+        }
+    }
+
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    // number of sites in the tree containing p
+    int size(int p) {
+        return -parents[find(p)];
+    }
+
+    public int find(int p) {
+        validate(p);
+
+        // path halving: point every other node on the path at its grandparent
+        while (parents[p] >= 0) {
+            int parent = parents[p];
+
+            if (parents[parent] >= 0) {
+                parents[p] = parents[parent];
+            }
+
+            p = parents[p];
+        }
+
+        return p;
+    }
+
+    public int pathLength(int p) {
+        validate(p);
+
+        int length = 0;
+        while (parents[p] >= 0) {
+            p = parents[p];
+            length++;
+        }
+
+        return length;
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= parents.length) throw new IllegalArgumentException("p is out of bounds");
+    }
+}
@@ -8,85 +8,379 @@ import edu.princeton.cs.algs4.WeightedQuickUnionUF;
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.util.Arrays;
+
 public class Percolation {
-    // Here to change uf implementation
-    private static final String UF_IMPL = "AlgsWeightedQuickUnionUF";
+    // Default uf implementation, override with -Dpercolation.uf=<type>; it
+    // resets in place, so reusing a grid across trials allocates nothing
+    private static final String UF_IMPL = System.getProperty("percolation.uf", "MyWeightedPathHalvingUF");
+    // Default open-state storage, override with -Dpercolation.sites=<type>
+    private static final String SITE_SET_IMPL = System.getProperty("percolation.sites", "BooleanSiteSet");
+    // Default for tracking fullness per root instead of through virtual sites,
+    // override with -Dpercolation.backwashFree=true
+    private static final boolean BACKWASH_FREE = Boolean.getBoolean("percolation.backwashFree");
+    // Default placement of sites in the arrays, override with -Dpercolation.layout=<type>
+    private static final String LAYOUT_IMPL = System.getProperty("percolation.layout", "RowMajorLayout");
+    // Wrap every union-find backend in InstrumentedUF, enable with
+    // -Dpercolation.instrument=true; the flag is a constant to the JIT, so when
+    // it is off the wrapper is never created and every instrumentation branch
+    // compiles away
+    static final boolean INSTRUMENTED = Boolean.getBoolean("percolation.instrument");
+    // Backends used when n * n + 2 does not fit in an int index
+    private static final String LARGE_UF_IMPL = "ChunkedUF";
+    private static final String LARGE_SITE_SET_IMPL = "BitSiteSet";
+    // Largest n whose n * n + 2 sites still fit in ChunkedUF's unsigned int links
+    private static final int MAX_SIZE = 65535;
+
+    // status bits of a root, see status
+    private static final byte TOUCHES_TOP = 1;
+    private static final byte TOUCHES_BOTTOM = 2;
 
     private final int realSize;
+    private final SiteLayout layout;
+    // array indices of the virtual top and bottom sites
+    private final long top;
+    private final long bottom;
     private final UnionFind unionFindImpl;
-    private final boolean[] openSet;
-    private int openSites;
-
-    // creates n-by-n grid, with all sites initially blocked
+    private final SiteSet openSet;
+    // in backwash-free mode, TOUCHES_TOP / TOUCHES_BOTTOM of the cluster whose
+    // root is the index; null when virtual top and bottom sites are used
+    private final byte[] status;
+    private boolean percolates;
+    private long openSites;
+
+    // while a checkpoint is open: every opened site, and in backwash-free mode
+    // also the root and previous status it overwrote, oldest first
+    private long[] undoLog = new long[0];
+    private int undoSize;
+    // per open checkpoint: undoSize, union-find mark and percolates at the time
+    private int[] checkpoints = new int[0];
+    private int checkpointSize;
+
+    // creates n-by-n grid, with all sites initially blocked; grids too large
+    // for int indices use ChunkedUF and BitSiteSet whatever the defaults are
     public Percolation(int n) {
+        this(n, fitsIntIndex(n) ? UF_IMPL : LARGE_UF_IMPL);
+    }
+
+    // creates n-by-n grid backed by the named uf implementation
+    public Percolation(int n, String ufType) {
+        this(n, ufType, fitsIntIndex(n) ? SITE_SET_IMPL : LARGE_SITE_SET_IMPL);
+    }
+
+    // creates n-by-n grid backed by the named uf and open-state implementations
+    public Percolation(int n, String ufType, String siteSetType) {
+        this(n, ufType, siteSetType, BACKWASH_FREE);
+    }
+
+    // creates n-by-n grid; with backwashFree, each root stores whether its
+    // cluster touches the top and bottom rows, so isFull() has no backwash and
+    // no virtual sites are needed
+    public Percolation(int n, String ufType, String siteSetType, boolean backwashFree) {
+        this(n, ufType, siteSetType, backwashFree, LAYOUT_IMPL);
+    }
+
+    // creates n-by-n grid whose sites are placed in the union-find and
+    // open-state arrays by the named layout
+    public Percolation(int n, String ufType, String siteSetType, boolean backwashFree, String layoutType) {
         if (n <= 0) {
             throw new IllegalArgumentException("Percolation requires n > 0");
         }
+        if (n > MAX_SIZE) {
+            throw new IllegalArgumentException("Percolation requires n <= " + MAX_SIZE);
+        }
 
         realSize = n;
         openSites = 0;
+        layout = new SiteLayout(n, layoutType);
 
-        unionFindImpl = new UnionFind(realSize * realSize + 2, UF_IMPL);
-
-        // init open set
-        openSet = new boolean[realSize * realSize];
+        long capacity = layout.capacity();
+        top = capacity;
+        bottom = capacity + 1;
 
-        for (int i = 0; i < openSet.length; i++) {
-            openSet[i] = false;
+        if (backwashFree) {
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("backwash-free mode requires n * n < 2^31");
+            }
+            unionFindImpl = new UnionFind(capacity, ufType);
+            status = new byte[(int) capacity];
+        } else {
+            unionFindImpl = new UnionFind(capacity + 2, ufType);
+            status = null;
         }
+        openSet = new SiteSet(capacity, siteSetType);
     }
 
     // opens the site (row, col) if it is not open already
     public void open(int row, int col) {
-        if (isOpen(row, col)) {
+        validate(row, col);
+        openSite(row - 1, col - 1);
+    }
+
+    // opens the site with 0-based row-major index (row - 1) * n + (col - 1)
+    public void open(long site) {
+        if (site < 0 || site >= (long) realSize * realSize) {
+            throw new IllegalArgumentException("site must be in the range of [0, n * n)");
+        }
+        int row = (int) (site / realSize);
+        openSite(row, (int) (site - (long) row * realSize));
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        validate(row, col);
+        return openSet.isOpen(convertIndex(row, col));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        validate(row, col);
+        if (INSTRUMENTED) {
+            unionFindImpl.stats().recordFullQuery();
+        }
+        if (status != null) {
+            return (status[(int) unionFindImpl.find(convertIndex(row, col))] & TOUCHES_TOP) != 0;
+        }
+        return unionFindImpl.connected(convertIndex(row, col), top);
+    }
+
+    // blocks every site again, reusing the existing arrays
+    public void reset() {
+        unionFindImpl.reset();
+        openSet.reset();
+        if (status != null) {
+            Arrays.fill(status, (byte) 0);
+        }
+        percolates = false;
+        openSites = 0;
+        undoSize = 0;
+        checkpointSize = 0;
+    }
+
+    // marks the current state, so the opens that follow can be undone by
+    // rollback() in time proportional to their number; checkpoints nest, and
+    // the grid must use the "MyRollbackUF" uf implementation, otherwise this
+    // throws IllegalStateException
+    public void checkpoint() {
+        int mark = unionFindImpl.checkpoint();
+
+        if (checkpointSize + 3 > checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, Math.max(6, checkpoints.length * 2));
+        }
+        checkpoints[checkpointSize++] = undoSize;
+        checkpoints[checkpointSize++] = mark;
+        checkpoints[checkpointSize++] = percolates ? 1 : 0;
+    }
+
+    // blocks again every site opened since the latest checkpoint, and drops it
+    public void rollback() {
+        if (checkpointSize == 0) {
+            throw new IllegalStateException("rollback() without checkpoint()");
+        }
+
+        percolates = checkpoints[--checkpointSize] == 1;
+        unionFindImpl.rollback(checkpoints[--checkpointSize]);
+        int target = checkpoints[--checkpointSize];
+
+        while (undoSize > target) {
+            if (status != null) {
+                long previous = undoLog[--undoSize];
+                int root = (int) undoLog[--undoSize];
+                status[root] = (byte) previous;
+            }
+
+            openSet.close(undoLog[--undoSize]);
+            openSites--;
+        }
+    }
+
+    // returns the number of open sites; throws ArithmeticException once there
+    // are more than Integer.MAX_VALUE, see openSiteCount()
+    public int numberOfOpenSites() {
+        return Math.toIntExact(openSites);
+    }
+
+    // returns the number of open sites, also on grids past 2^31 sites
+    public long openSiteCount() {
+        return openSites;
+    }
+
+    // copy of the call counts and find path lengths since construction or the
+    // last reset(), or null unless run with -Dpercolation.instrument=true
+    public UnionFindStats instrumentation() {
+        UnionFindStats stats = unionFindImpl.stats();
+        return stats == null ? null : stats.copy();
+    }
+
+    // returns the number of open sites in the given row
+    public int numberOfOpenSitesInRow(int row) {
+        validate(row, 1);
+
+        if (!layout.isRowMajor()) {
+            return openSitesInRow(row).length;
+        }
+
+        long first = convertIndex(row, 1);
+        return (int) openSet.count(first, first + realSize);
+    }
+
+    // returns the columns of the open sites in the given row, in increasing order
+    public int[] openSitesInRow(int row) {
+        validate(row, 1);
+
+        // a row is only one contiguous range of words in row-major order
+        if (!layout.isRowMajor()) {
+            int count = 0;
+            int[] cols = new int[realSize];
+            for (int col = 1; col <= realSize; col++) {
+                if (openSet.isOpen(convertIndex(row, col))) {
+                    cols[count++] = col;
+                }
+            }
+            return Arrays.copyOf(cols, count);
+        }
+
+        long first = convertIndex(row, 1);
+        long last = first + realSize;
+        int[] cols = new int[(int) openSet.count(first, last)];
+
+        long site = openSet.nextOpen(first, last);
+        for (int i = 0; i < cols.length; i++) {
+            cols[i] = (int) (site - first) + 1;
+            site = openSet.nextOpen(site + 1, last);
+        }
+
+        return cols;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        if (INSTRUMENTED) {
+            unionFindImpl.stats().recordPercolatesQuery();
+        }
+        if (status != null) {
+            return percolates;
+        }
+        return unionFindImpl.connected(top, bottom);
+    }
+
+    // row and col are 0-based
+    private void openSite(int row, int col) {
+        long currentIndex = layout.index(row, col);
+
+        if (INSTRUMENTED) {
+            unionFindImpl.stats().recordOpen();
+        }
+
+        if (openSet.isOpen(currentIndex)) {
             return;
         }
 
-        int currentIndex = convertIndex(row, col);
-        openSet[currentIndex] = true;
+        openSet.open(currentIndex);
         openSites++;
 
+        if (checkpointSize > 0) {
+            log(currentIndex);
+        }
+
+        if (status != null) {
+            linkWithStatus(currentIndex, row, col);
+            return;
+        }
+
         // up
-        if (row == 1 || isOpen(row - 1, col)) {
-            unionFindImpl.union(currentIndex, convertIndex(row - 1, col));
+        if (row == 0) {
+            unionFindImpl.union(currentIndex, top);
+        } else {
+            linkIfOpen(currentIndex, layout.index(row - 1, col));
         }
 
         // down
-        if (row == realSize || isOpen(row + 1, col)) {
-            unionFindImpl.union(currentIndex, convertIndex(row + 1, col));
+        if (row == realSize - 1) {
+            unionFindImpl.union(currentIndex, bottom);
+        } else {
+            linkIfOpen(currentIndex, layout.index(row + 1, col));
         }
 
         // left
-        if (col > 1 && isOpen(row, col - 1)) {
-            unionFindImpl.union(currentIndex, convertIndex(row, col - 1));
+        if (col > 0) {
+            linkIfOpen(currentIndex, layout.index(row, col - 1));
         }
 
         // right
-        if (col < realSize && isOpen(row, col + 1)) {
-            unionFindImpl.union(currentIndex, convertIndex(row, col + 1));
+        if (col < realSize - 1) {
+            linkIfOpen(currentIndex, layout.index(row, col + 1));
         }
     }
 
-    // is the site (row, col) open?
-    public boolean isOpen(int row, int col) {
-        validate(row, col);
-        return openSet[convertIndex(row, col)];
+    private void linkIfOpen(long currentIndex, long neighbourIndex) {
+        if (openSet.isOpen(neighbourIndex)) {
+            unionFindImpl.union(currentIndex, neighbourIndex);
+        }
     }
 
-    // is the site (row, col) full?
-    public boolean isFull(int row, int col) {
-        validate(row, col);
-        return unionFindImpl.connected(convertIndex(row, col), convertIndex(0, 0));
+    // unions the site with its open neighbours and stores the merged status on
+    // the new root; row and col are 0-based
+    private void linkWithStatus(long currentIndex, int row, int col) {
+        int flags = 0;
+
+        if (row == 0) {
+            flags |= TOUCHES_TOP;
+        }
+        if (row == realSize - 1) {
+            flags |= TOUCHES_BOTTOM;
+        }
+
+        // up
+        if (row > 0) {
+            flags |= linkNeighbour(currentIndex, layout.index(row - 1, col));
+        }
+
+        // down
+        if (row < realSize - 1) {
+            flags |= linkNeighbour(currentIndex, layout.index(row + 1, col));
+        }
+
+        // left
+        if (col > 0) {
+            flags |= linkNeighbour(currentIndex, layout.index(row, col - 1));
+        }
+
+        // right
+        if (col < realSize - 1) {
+            flags |= linkNeighbour(currentIndex, layout.index(row, col + 1));
+        }
+
+        int root = (int) unionFindImpl.find(currentIndex);
+
+        if (checkpointSize > 0) {
+            log(root);
+            log(status[root]);
+        }
+
+        status[root] = (byte) flags;
+
+        if (flags == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            percolates = true;
+        }
     }
 
-    // returns the number of open sites
-    public int numberOfOpenSites() {
-        return openSites;
+    // unions the site with an open neighbour, returns the neighbour cluster's status
+    private int linkNeighbour(long currentIndex, long neighbourIndex) {
+        if (!openSet.isOpen(neighbourIndex)) {
+            return 0;
+        }
+
+        int flags = status[(int) unionFindImpl.find(neighbourIndex)];
+        unionFindImpl.union(currentIndex, neighbourIndex);
+        return flags;
     }
 
-    // does the system percolate?
-    public boolean percolates() {
-        return unionFindImpl.connected(convertIndex(0, 0), convertIndex(realSize + 1, 0));
+    private void log(long value) {
+        if (undoSize == undoLog.length) {
+            undoLog = Arrays.copyOf(undoLog, Math.max(16, undoLog.length * 2));
+        }
+        undoLog[undoSize++] = value;
     }
 
     private void validate(int row, int col) {
@@ -94,18 +388,14 @@ public class Percolation {
             throw new IllegalArgumentException("row and col must be in the range of [1, n]");
     }
 
-    private int convertIndex(int row, int col) {
-        if (1 <= row && row <= realSize) {
-            return (row - 1) * realSize + (col - 1);
-        }
-
-        // virtual top
-        if (row < 1) {
-            return realSize * realSize;
-        }
+    // array index of the site (row, col), 1-based
+    private long convertIndex(int row, int col) {
+        return layout.index(row - 1, col - 1);
+    }
 
-        // virtual bottom
-        return realSize * realSize + 1;
+    // do the n * n sites and two virtual sites fit in an int index?
+    private static boolean fitsIntIndex(int n) {
+        return (long) n * n + 2 <= Integer.MAX_VALUE;
     }
 
     public static void main(String[] args) {
@@ -123,18 +413,15 @@ public class Percolation {
     }
 }
 
-interface IUnionFind {
-    void union(int p, int q);
-
-    boolean connected(int p, int q);
-}
-
 class MyQuickFindUF implements IUnionFind {
     private final int[] entries;
 
     MyQuickFindUF(int n) {
         entries = new int[n];
+        reset();
+    }
 
+    public void reset() {
         for (int i = 0; i < entries.length; i++) {
             entries[i] = i;
         }
@@ -161,6 +448,17 @@ class MyQuickFindUF implements IUnionFind {
         return entries[p] == entries[q];
     }
 
+    public int find(int p) {
+        validate(p);
+        return entries[p];
+    }
+
+    // every element points straight at its component's identifier
+    public int pathLength(int p) {
+        validate(p);
+        return entries[p] == p ? 0 : 1;
+    }
+
     private void validate(int p) {
         if (p < 0 || p >= entries.length) throw new IllegalArgumentException("p is out of bounds");
     }
@@ -171,7 +469,10 @@ class MyQuickUnionUF implements IUnionFind {
 
     MyQuickUnionUF(int n) {
         parents = new int[n];
+        reset();
+    }
 
+    public void reset() {
         for (int i = 0; i < parents.length; i++) {
             parents[i] = i;
         }
@@ -191,7 +492,7 @@ class MyQuickUnionUF implements IUnionFind {
         return find(p) == find(q);
     }
 
-    private int find(int p) {
+    public int find(int p) {
         validate(p);
 
         while (p != parents[p]) {
@@ -201,6 +502,18 @@ class MyQuickUnionUF implements IUnionFind {
         return p;
     }
 
+    public int pathLength(int p) {
+        validate(p);
+
+        int length = 0;
+        while (p != parents[p]) {
+            p = parents[p];
+            length++;
+        }
+
+        return length;
+    }
+
     private void validate(int p) {
         if (p < 0 || p >= parents.length) throw new IllegalArgumentException("p is out of bounds");
     }
@@ -212,16 +525,16 @@ class MyWeightedQuickUnionUF implements IUnionFind {
 
     MyWeightedQuickUnionUF(int n) {
         parents = new int[n];
+        heights = new int[n];
+        reset();
+    }
 
+    public void reset() {
         for (int i = 0; i < parents.length; i++) {
             parents[i] = i;
         }
 
-        heights = new int[n];
-
-        for (int i = 0; i < heights.length; i++) {
-            heights[i] = 1;
-        }
+        Arrays.fill(heights, 1);
     }
 
     public void union(int p, int q) {
@@ -246,7 +559,91 @@ class MyWeightedQuickUnionUF implements IUnionFind {
         return find(p) == find(q);
     }
 
-    private int find(int p) {
+    public int find(int p) {
+        validate(p);
+
+        while (p != parents[p]) {
+            p = parents[p];
+        }
+
+        return p;
+    }
+
+    public int pathLength(int p) {
+        validate(p);
+
+        int length = 0;
+        while (p != parents[p]) {
+            p = parents[p];
+            length++;
+        }
+
+        return length;
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= parents.length) throw new IllegalArgumentException("p is out of bounds");
+    }
+}
+
+// union by rank without path compression, so every union can be undone
+// by resetting the one parent link (and rank) it changed
+class MyRollbackUF implements IUnionFind {
+    private final int[] parents;
+    private final byte[] ranks;
+    // child root of each linking union, as ~child if the new root's rank grew
+    private int[] history;
+    private int historySize;
+
+    MyRollbackUF(int n) {
+        parents = new int[n];
+        ranks = new byte[n];
+        history = new int[16];
+        reset();
+    }
+
+    public void reset() {
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+
+        Arrays.fill(ranks, (byte) 0);
+        historySize = 0;
+    }
+
+    public void union(int p, int q) {
+        int firstRoot = find(p);
+        int secondRoot = find(q);
+
+        if (firstRoot == secondRoot) {
+            return;
+        }
+
+        if (ranks[firstRoot] < ranks[secondRoot]) {
+            int temp = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = temp;
+        }
+
+        parents[secondRoot] = firstRoot;
+
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+        }
+
+        if (ranks[firstRoot] == ranks[secondRoot]) {
+            ranks[firstRoot]++;
+            history[historySize++] = ~secondRoot;
+        } else {
+            history[historySize++] = secondRoot;
+        }
+    }
+
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    public int find(int p) {
         validate(p);
 
         while (p != parents[p]) {
@@ -256,6 +653,38 @@ class MyWeightedQuickUnionUF implements IUnionFind {
         return p;
     }
 
+    public int pathLength(int p) {
+        validate(p);
+
+        int length = 0;
+        while (p != parents[p]) {
+            p = parents[p];
+            length++;
+        }
+
+        return length;
+    }
+
+    // mark to pass to rollback
+    int checkpoint() {
+        return historySize;
+    }
+
+    // undoes, newest first, every union made since checkpoint() returned mark
+    void rollback(int mark) {
+        if (mark < 0 || mark > historySize) throw new IllegalArgumentException("mark is out of bounds");
+
+        while (historySize > mark) {
+            int entry = history[--historySize];
+            int child = entry < 0 ? ~entry : entry;
+
+            if (entry < 0) {
+                ranks[parents[child]]--;
+            }
+            parents[child] = child;
+        }
+    }
+
     private void validate(int p) {
         if (p < 0 || p >= parents.length) throw new IllegalArgumentException("p is out of bounds");
     }
@@ -294,12 +723,20 @@ class MyWeightedQuickUnionUF implements IUnionFind {
 //}
 
 class AlgsWeightedQuickUnionUF implements IUnionFind {
-    private final WeightedQuickUnionUF impl;
+    private final int size;
+    private WeightedQuickUnionUF impl;
 
     AlgsWeightedQuickUnionUF(int n) {
+        size = n;
         impl = new WeightedQuickUnionUF(n);
     }
 
+    // the library class cannot be cleared, so this one still allocates two
+    // arrays of n ints; not the default for that reason
+    public void reset() {
+        impl = new WeightedQuickUnionUF(size);
+    }
+
     public void union(int p, int q) {
         impl.union(p, q);
     }
@@ -307,41 +744,641 @@ class AlgsWeightedQuickUnionUF implements IUnionFind {
     public boolean connected(int p, int q) {
         return impl.find(p) == impl.find(q);
     }
+
+    public int find(int p) {
+        return impl.find(p);
+    }
+
+    // the library class does not expose its parent links
+    public int pathLength(int p) {
+        return -1;
+    }
 }
 
-class UnionFind {
+// the union-find seen by Percolation: like IUnionFind, but indexed with
+// long so that grids past n = 46340 can be held
+interface ILongUnionFind {
+    void union(long p, long q);
+
+    boolean connected(long p, long q);
+
+    long find(long p);
+
+    void reset();
+
+    int pathLength(long p);
+}
+
+// an int-indexed implementation, for sets of at most Integer.MAX_VALUE elements
+class IntUnionFind implements ILongUnionFind {
     private final IUnionFind impl;
 
-    UnionFind(int n, String type) {
+    IntUnionFind(IUnionFind impl) {
+        this.impl = impl;
+    }
+
+    IUnionFind backend() {
+        return impl;
+    }
+
+    public void union(long p, long q) {
+        impl.union((int) p, (int) q);
+    }
+
+    public boolean connected(long p, long q) {
+        return impl.connected((int) p, (int) q);
+    }
+
+    public long find(long p) {
+        return impl.find((int) p);
+    }
+
+    public void reset() {
+        impl.reset();
+    }
+
+    public int pathLength(long p) {
+        return impl.pathLength((int) p);
+    }
+}
+
+// up to 2^32 elements: parent links are ints read as unsigned, stored in
+// chunks of 2^chunkBits so no single array passes the int index limit.
+// Roots are linked by a fixed pseudo-random priority, as in ConcurrentUF, and
+// finds halve paths, so there is no rank or size array: 4 bytes per element,
+// 10 GB for an n = 50,000 grid
+class ChunkedUF implements ILongUnionFind {
+    static final long MAX_ELEMENTS = 1L << 32;
+    private static final int DEFAULT_CHUNK_BITS = 30;
+
+    private final int[][] chunks;
+    private final int chunkBits;
+    private final long chunkMask;
+    private final long size;
+
+    ChunkedUF(long n) {
+        this(n, DEFAULT_CHUNK_BITS);
+    }
+
+    ChunkedUF(long n, int chunkBits) {
+        if (n < 0 || n > MAX_ELEMENTS) throw new IllegalArgumentException("ChunkedUF holds at most 2^32 elements");
+        if (chunkBits < 1 || chunkBits > 30) throw new IllegalArgumentException("chunkBits must be in [1, 30]");
+
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1L << chunkBits) - 1;
+        this.size = n;
+
+        chunks = new int[(int) ((n + chunkMask) >>> chunkBits)][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new int[(int) Math.min(chunkMask + 1, n - ((long) c << chunkBits))];
+        }
+        reset();
+    }
+
+    public void reset() {
+        for (int c = 0; c < chunks.length; c++) {
+            int[] chunk = chunks[c];
+            int base = (int) ((long) c << chunkBits);
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = base + i;
+            }
+        }
+    }
+
+    private long parent(long p) {
+        return chunks[(int) (p >>> chunkBits)][(int) (p & chunkMask)] & 0xFFFFFFFFL;
+    }
+
+    private void setParent(long p, long parent) {
+        chunks[(int) (p >>> chunkBits)][(int) (p & chunkMask)] = (int) parent;
+    }
+
+    public void union(long p, long q) {
+        long firstRoot = find(p);
+        long secondRoot = find(q);
+
+        if (firstRoot == secondRoot) {
+            return;
+        }
+
+        // link the root with the lower priority under the other
+        if (priority(firstRoot) < priority(secondRoot)) {
+            setParent(firstRoot, secondRoot);
+        } else {
+            setParent(secondRoot, firstRoot);
+        }
+    }
+
+    public boolean connected(long p, long q) {
+        return find(p) == find(q);
+    }
+
+    public long find(long p) {
+        validate(p);
+
+        // path halving: point every other node on the path at its grandparent
+        long parent = parent(p);
+        while (parent != p) {
+            long grandparent = parent(parent);
+            setParent(p, grandparent);
+            p = grandparent;
+            parent = parent(p);
+        }
+
+        return p;
+    }
+
+    public int pathLength(long p) {
+        validate(p);
+
+        int length = 0;
+        for (long parent = parent(p); parent != p; parent = parent(p)) {
+            p = parent;
+            length++;
+        }
+
+        return length;
+    }
+
+    // a fixed bijective mix of the index, so linking behaves like random linking
+    private static long priority(long p) {
+        long h = p * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private void validate(long p) {
+        if (p < 0 || p >= size) throw new IllegalArgumentException("p is out of bounds");
+    }
+}
+
+// counts the calls made into another implementation and the path length of
+// every lookup they do, measured before the call so that path compression in
+// the wrapped implementation cannot hide it; not safe for concurrent use
+class InstrumentedUF implements ILongUnionFind {
+    private final ILongUnionFind impl;
+    private final UnionFindStats stats = new UnionFindStats();
+
+    InstrumentedUF(ILongUnionFind impl) {
+        this.impl = impl;
+    }
+
+    ILongUnionFind backend() {
+        return impl;
+    }
+
+    // live counters, cleared by reset()
+    UnionFindStats stats() {
+        return stats;
+    }
+
+    public void reset() {
+        impl.reset();
+        stats.clear();
+    }
+
+    public void union(long p, long q) {
+        stats.recordUnion();
+        lookup(p);
+        lookup(q);
+        impl.union(p, q);
+    }
+
+    public boolean connected(long p, long q) {
+        stats.recordConnected();
+        lookup(p);
+        lookup(q);
+        return impl.connected(p, q);
+    }
+
+    public long find(long p) {
+        stats.recordFind();
+        lookup(p);
+        return impl.find(p);
+    }
+
+    public int pathLength(long p) {
+        return impl.pathLength(p);
+    }
+
+    private void lookup(long p) {
+        int length = impl.pathLength(p);
+        if (length >= 0) {
+            stats.recordPath(length);
+        }
+    }
+}
+
+class UnionFind {
+    private final ILongUnionFind impl;
+    private final InstrumentedUF instrumented;
+    private final String type;
+
+    UnionFind(long n, String type) {
+        ILongUnionFind backend;
+        this.type = type;
+
+        if (type.equals("ChunkedUF")) {
+            backend = new ChunkedUF(n);
+        } else if (n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("UnionFind: " + type + " holds at most 2^31 - 1 elements, use ChunkedUF");
+        } else {
+            backend = new IntUnionFind(intBackend((int) n, type));
+        }
+
+        if (Percolation.INSTRUMENTED) {
+            instrumented = new InstrumentedUF(backend);
+            impl = instrumented;
+        } else {
+            instrumented = null;
+            impl = backend;
+        }
+    }
+
+    private static IUnionFind intBackend(int n, String type) {
         switch (type) {
             case "MyQuickFindUF":
-                impl = new MyQuickFindUF(n);
-                break;
+                return new MyQuickFindUF(n);
             case "MyQuickUnionUF":
-                impl = new MyQuickUnionUF(n);
-                break;
+                return new MyQuickUnionUF(n);
             case "MyWeightedQuickUnionUF":
-                impl = new MyWeightedQuickUnionUF(n);
-                break;
+                return new MyWeightedQuickUnionUF(n);
+            case "MyWeightedPathHalvingUF":
+                return new MyWeightedPathHalvingUF(n);
+            case "ConcurrentUF":
+                return new ConcurrentUF(n);
+            case "MyRollbackUF":
+                return new MyRollbackUF(n);
 //            case "AlgsQuickFindUF":
-//                impl = new AlgsQuickFindUF(n);
-//                break;
+//                return new AlgsQuickFindUF(n);
 //            case "AlgsQuickUnionUF":
-//                impl = new AlgsQuickUnionUF(n);
-//                break;
+//                return new AlgsQuickUnionUF(n);
             case "AlgsWeightedQuickUnionUF":
-                impl = new AlgsWeightedQuickUnionUF(n);
-                break;
+                return new AlgsWeightedQuickUnionUF(n);
             default:
                 throw new IllegalArgumentException("UnionFind: Unrecognized type");
         }
     }
 
-    public void union(int p, int q) {
+    public void union(long p, long q) {
         impl.union(p, q);
     }
 
-    public boolean connected(int p, int q) {
+    public boolean connected(long p, long q) {
         return impl.connected(p, q);
     }
+
+    public long find(long p) {
+        return impl.find(p);
+    }
+
+    public void reset() {
+        impl.reset();
+    }
+
+    // counters since construction or the last reset(), null unless
+    // Percolation.INSTRUMENTED
+    public UnionFindStats stats() {
+        return instrumented == null ? null : instrumented.stats();
+    }
+
+    // mark for rollback, only for implementations that can undo unions;
+    // any other backend is a misuse, reported as an IllegalStateException
+    public int checkpoint() {
+        return rollbackImpl().checkpoint();
+    }
+
+    public void rollback(int mark) {
+        rollbackImpl().rollback(mark);
+    }
+
+    private MyRollbackUF rollbackImpl() {
+        ILongUnionFind backend = instrumented == null ? impl : instrumented.backend();
+        IUnionFind intBackend = backend instanceof IntUnionFind ? ((IntUnionFind) backend).backend() : null;
+        if (!(intBackend instanceof MyRollbackUF)) {
+            throw new IllegalStateException("checkpoint() and rollback() require ufType \"MyRollbackUF\", not \""
+                    + type + "\"");
+        }
+        return (MyRollbackUF) intBackend;
+    }
+}
+
+interface ISiteSet {
+    void open(long p);
+
+    void close(long p);
+
+    boolean isOpen(long p);
+
+    // number of open sites in [from, to)
+    long count(long from, long to);
+
+    // first open site in [from, to), or -1 if there is none
+    long nextOpen(long from, long to);
+
+    // closes every site
+    void reset();
+}
+
+class BooleanSiteSet implements ISiteSet {
+    private final boolean[] sites;
+
+    BooleanSiteSet(long n) {
+        if (n > Integer.MAX_VALUE) throw new IllegalArgumentException("BooleanSiteSet holds at most 2^31 - 1 sites, use BitSiteSet");
+        sites = new boolean[(int) n];
+    }
+
+    public void reset() {
+        Arrays.fill(sites, false);
+    }
+
+    public void open(long p) {
+        validate(p);
+        sites[(int) p] = true;
+    }
+
+    public void close(long p) {
+        validate(p);
+        sites[(int) p] = false;
+    }
+
+    public boolean isOpen(long p) {
+        validate(p);
+        return sites[(int) p];
+    }
+
+    public long count(long from, long to) {
+        validate(from, to);
+        long count = 0;
+
+        for (int i = (int) from; i < to; i++) {
+            if (sites[i]) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public long nextOpen(long from, long to) {
+        validate(from, to);
+
+        for (int i = (int) from; i < to; i++) {
+            if (sites[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void validate(long p) {
+        if (p < 0 || p >= sites.length) throw new IllegalArgumentException("p is out of bounds");
+    }
+
+    private void validate(long from, long to) {
+        if (from < 0 || to > sites.length) throw new IllegalArgumentException("range is out of bounds");
+    }
+}
+
+class BitSiteSet implements ISiteSet {
+    // site p is bit (p % 64) of words[p / 64]
+    private final long[] words;
+    private final long size;
+
+    BitSiteSet(long n) {
+        words = new long[(int) ((n + 63) >>> 6)];
+        size = n;
+    }
+
+    public void reset() {
+        Arrays.fill(words, 0);
+    }
+
+    public void open(long p) {
+        validate(p);
+        // shifts of a long only use the low 6 bits of the distance
+        words[(int) (p >>> 6)] |= 1L << p;
+    }
+
+    public void close(long p) {
+        validate(p);
+        words[(int) (p >>> 6)] &= ~(1L << p);
+    }
+
+    public boolean isOpen(long p) {
+        validate(p);
+        return (words[(int) (p >>> 6)] & (1L << p)) != 0;
+    }
+
+    public long count(long from, long to) {
+        validate(from, to);
+
+        if (from >= to) {
+            return 0;
+        }
+
+        int firstWord = (int) (from >>> 6);
+        int lastWord = (int) ((to - 1) >>> 6);
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (firstWord == lastWord) {
+            return Long.bitCount(words[firstWord] & firstMask & lastMask);
+        }
+
+        long count = Long.bitCount(words[firstWord] & firstMask);
+
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            count += Long.bitCount(words[i]);
+        }
+
+        return count + Long.bitCount(words[lastWord] & lastMask);
+    }
+
+    public long nextOpen(long from, long to) {
+        validate(from, to);
+
+        if (from >= to) {
+            return -1;
+        }
+
+        int wordIndex = (int) (from >>> 6);
+        int lastWord = (int) ((to - 1) >>> 6);
+        long word = words[wordIndex] & (-1L << from);
+
+        while (word == 0) {
+            if (++wordIndex > lastWord) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+
+        long p = ((long) wordIndex << 6) + Long.numberOfTrailingZeros(word);
+        return p < to ? p : -1;
+    }
+
+    private void validate(long p) {
+        if (p < 0 || p >= size) throw new IllegalArgumentException("p is out of bounds");
+    }
+
+    private void validate(long from, long to) {
+        if (from < 0 || to > size) throw new IllegalArgumentException("range is out of bounds");
+    }
+}
+
+class SiteSet {
+    private final ISiteSet impl;
+
+    SiteSet(long n, String type) {
+        switch (type) {
+            case "BooleanSiteSet":
+                impl = new BooleanSiteSet(n);
+                break;
+            case "BitSiteSet":
+                impl = new BitSiteSet(n);
+                break;
+            default:
+                throw new IllegalArgumentException("SiteSet: Unrecognized type");
+        }
+    }
+
+    public void open(long p) {
+        impl.open(p);
+    }
+
+    public void close(long p) {
+        impl.close(p);
+    }
+
+    public boolean isOpen(long p) {
+        return impl.isOpen(p);
+    }
+
+    public long count(long from, long to) {
+        return impl.count(from, to);
+    }
+
+    public long nextOpen(long from, long to) {
+        return impl.nextOpen(from, to);
+    }
+
+    public void reset() {
+        impl.reset();
+    }
+}
+
+interface ISiteLayout {
+    // array index of the site (row, col), 0-based
+    long index(int row, int col);
+
+    // length of the arrays, at least n * n
+    long capacity();
+}
+
+class RowMajorLayout implements ISiteLayout {
+    private final int n;
+
+    RowMajorLayout(int n) {
+        this.n = n;
+    }
+
+    public long index(int row, int col) {
+        return (long) row * n + col;
+    }
+
+    public long capacity() {
+        return (long) n * n;
+    }
+}
+
+// square tiles of TILE x TILE sites stored one after another, so the up and
+// down neighbours of a site are usually within the same 1 KB of ints
+class TiledLayout implements ISiteLayout {
+    private static final int SHIFT = 4;
+    private static final int TILE = 1 << SHIFT;
+    private static final int MASK = TILE - 1;
+
+    private final int tilesPerRow;
+
+    TiledLayout(int n) {
+        tilesPerRow = (n + MASK) >>> SHIFT;
+        SiteLayout.checkCapacity((long) tilesPerRow * tilesPerRow << (2 * SHIFT));
+    }
+
+    public long index(int row, int col) {
+        int tile = (row >>> SHIFT) * tilesPerRow + (col >>> SHIFT);
+        return (tile << (2 * SHIFT)) | ((row & MASK) << SHIFT) | (col & MASK);
+    }
+
+    public long capacity() {
+        return (tilesPerRow * tilesPerRow) << (2 * SHIFT);
+    }
+}
+
+// Z-order: the bits of row and col interleaved, so every aligned 2^k x 2^k
+// block of sites is contiguous; the grid is padded to a power of two
+class MortonLayout implements ISiteLayout {
+    private final int side;
+
+    MortonLayout(int n) {
+        side = n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+        SiteLayout.checkCapacity((long) side * side);
+    }
+
+    public long index(int row, int col) {
+        return (spread(row) << 1) | spread(col);
+    }
+
+    public long capacity() {
+        return side * side;
+    }
+
+    // moves bit i of x to bit 2i
+    private static int spread(int x) {
+        x = (x | (x << 8)) & 0x00FF00FF;
+        x = (x | (x << 4)) & 0x0F0F0F0F;
+        x = (x | (x << 2)) & 0x33333333;
+        x = (x | (x << 1)) & 0x55555555;
+        return x;
+    }
+}
+
+class SiteLayout {
+    private final ISiteLayout impl;
+    private final boolean rowMajor;
+
+    SiteLayout(int n, String type) {
+        switch (type) {
+            case "RowMajorLayout":
+                impl = new RowMajorLayout(n);
+                break;
+            case "TiledLayout":
+                impl = new TiledLayout(n);
+                break;
+            case "MortonLayout":
+                impl = new MortonLayout(n);
+                break;
+            default:
+                throw new IllegalArgumentException("SiteLayout: Unrecognized type");
+        }
+        rowMajor = impl instanceof RowMajorLayout;
+    }
+
+    public long index(int row, int col) {
+        return impl.index(row, col);
+    }
+
+    public long capacity() {
+        return impl.capacity();
+    }
+
+    // are the sites of a row stored contiguously, in column order?
+    public boolean isRowMajor() {
+        return rowMajor;
+    }
+
+    // the arrays also hold the two virtual sites
+    static void checkCapacity(long capacity) {
+        if (capacity + 2 > Integer.MAX_VALUE) throw new IllegalArgumentException("n is too large for this layout");
+    }
 }
@@ -0,0 +1,194 @@
+/* *****************************************************************************
+ *  Newman-Ziff estimate of the spanning probability curve.
+ *
+ *  Each sweep opens every site of an n-by-n grid in random order and records,
+ *  after m open sites, whether the grid percolates and the size of its largest
+ *  cluster. Averaged over sweeps these are the fixed-m (microcanonical)
+ *  values Q(m); the value at occupation probability p is their binomial
+ *  convolution  Q(p) = sum_m C(N, m) p^m (1 - p)^(N - m) Q(m),  N = n * n,
+ *  so one set of sweeps answers any number of p.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+public class PercolationCurve {
+    private final int n;
+    private final int siteCount;
+    // spanning[m]: fraction of sweeps that percolate after m open sites
+    private final double[] spanning;
+    // largest[m]: mean size of the largest cluster after m open sites
+    private final double[] largest;
+
+    // runs sweeps independent sweeps on an n-by-n grid
+    public PercolationCurve(int n, int sweeps, long seed) {
+        if (n <= 0) throw new IllegalArgumentException("n <= 0");
+        if (sweeps <= 0) throw new IllegalArgumentException("sweeps <= 0");
+
+        this.n = n;
+        siteCount = n * n;
+        spanning = new double[siteCount + 1];
+        largest = new double[siteCount + 1];
+
+        int[] sites = new int[siteCount];
+        boolean[] openSet = new boolean[siteCount];
+        SplittableRandom root = new SplittableRandom(seed);
+
+        for (int i = 0; i < sweeps; i++) {
+            sweep(root.split(), sites, openSet);
+        }
+
+        // spanning holds the number of sweeps that first percolated at m
+        double running = 0;
+        for (int m = 0; m <= siteCount; m++) {
+            running += spanning[m];
+            spanning[m] = running / sweeps;
+            largest[m] /= sweeps;
+        }
+    }
+
+    private void sweep(SplittableRandom random, int[] sites, boolean[] openSet) {
+        MyWeightedPathHalvingUF uf = new MyWeightedPathHalvingUF(siteCount + 2);
+        int top = siteCount;
+        int bottom = siteCount + 1;
+        boolean percolates = false;
+        int largestCluster = 0;
+
+        for (int i = 0; i < siteCount; i++) {
+            sites[i] = i;
+            openSet[i] = false;
+        }
+
+        for (int k = 0; k < siteCount; k++) {
+            int j = k + random.nextInt(siteCount - k);
+            int site = sites[j];
+            sites[j] = sites[k];
+            sites[k] = site;
+
+            openSet[site] = true;
+            int row = site / n;
+            int col = site - row * n;
+
+            if (row == 0) uf.union(site, top);
+            else if (openSet[site - n]) uf.union(site, site - n);
+
+            if (row == n - 1) uf.union(site, bottom);
+            else if (openSet[site + n]) uf.union(site, site + n);
+
+            if (col > 0 && openSet[site - 1]) uf.union(site, site - 1);
+            if (col < n - 1 && openSet[site + 1]) uf.union(site, site + 1);
+
+            // the cluster of the new site is the only one that can have grown;
+            // the virtual sites it contains are not part of the cluster
+            int root = uf.find(site);
+            int size = uf.size(root);
+            if (uf.find(top) == root) size--;
+            if (uf.find(bottom) == root) size--;
+            largestCluster = Math.max(largestCluster, size);
+            largest[k + 1] += largestCluster;
+
+            if (!percolates && uf.connected(top, bottom)) {
+                percolates = true;
+                spanning[k + 1]++;
+            }
+        }
+    }
+
+    // fraction of sweeps that percolate with exactly m open sites
+    public double spanningProbability(int m) {
+        validate(m);
+        return spanning[m];
+    }
+
+    // mean size of the largest cluster with exactly m open sites
+    public double largestCluster(int m) {
+        validate(m);
+        return largest[m];
+    }
+
+    // probability that the grid percolates when each site is open with probability p
+    public double spanningProbabilityAt(double p) {
+        return convolve(spanning, p);
+    }
+
+    // mean largest cluster size, as a fraction of the grid, when each site is
+    // open with probability p
+    public double largestClusterAt(double p) {
+        return convolve(largest, p) / siteCount;
+    }
+
+    // spanningProbabilityAt for each of the given p
+    public double[] spanningProbabilityAt(double[] ps) {
+        double[] result = new double[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            result[i] = spanningProbabilityAt(ps[i]);
+        }
+        return result;
+    }
+
+    // sum of C(N, m) p^m (1 - p)^(N - m) values[m]; the binomial weights are
+    // built outward from the mode by their ratios and normalised at the end,
+    // so nothing overflows for large N
+    private double convolve(double[] values, double p) {
+        if (p < 0 || p > 1) throw new IllegalArgumentException("p must be in the range of [0, 1]");
+        if (p == 0) return values[0];
+        if (p == 1) return values[siteCount];
+
+        int mode = (int) Math.min(siteCount, Math.floor((siteCount + 1) * p));
+        double ratio = p / (1 - p);
+        double total = 1;
+        double sum = values[mode];
+
+        double weight = 1;
+        for (int m = mode + 1; m <= siteCount; m++) {
+            weight *= ratio * (siteCount - m + 1) / m;
+            if (weight == 0) break;
+            total += weight;
+            sum += weight * values[m];
+        }
+
+        weight = 1;
+        for (int m = mode - 1; m >= 0; m--) {
+            weight *= (m + 1) / (ratio * (siteCount - m));
+            if (weight == 0) break;
+            total += weight;
+            sum += weight * values[m];
+        }
+
+        return sum / total;
+    }
+
+    private void validate(int m) {
+        if (m < 0 || m > siteCount) throw new IllegalArgumentException("m must be in the range of [0, n * n]");
+    }
+
+    // test client: PercolationCurve <n> <sweeps> <seed> [p ...]
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("usage: PercolationCurve <n> <sweeps> <seed> [p ...]");
+        }
+
+        int n = Integer.parseInt(args[0]);
+        int sweeps = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        PercolationCurve curve = new PercolationCurve(n, sweeps, seed);
+
+        double[] ps;
+        if (args.length > 3) {
+            ps = new double[args.length - 3];
+            for (int i = 0; i < ps.length; i++) {
+                ps[i] = Double.parseDouble(args[i + 3]);
+            }
+        } else {
+            ps = new double[21];
+            for (int i = 0; i < ps.length; i++) {
+                ps[i] = 0.5 + i * 0.01;
+            }
+        }
+
+        for (double p : ps) {
+            StdOut.printf("p = %.4f  P(p) = %.6f  largest = %.6f%n",
+                    p, curve.spanningProbabilityAt(p), curve.largestClusterAt(p));
+        }
+    }
+}
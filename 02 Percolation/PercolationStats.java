@@ -1,18 +1,424 @@
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class PercolationStats {
-    private final double[] observations;
+    // leaf tasks per worker, so uneven trials still balance across the pool
+    private static final int TASKS_PER_WORKER = 4;
+    // draws row and col uniformly, with repeats, until the grid percolates
+    private static final String UNIFORM_SCHEDULE = "uniform";
+    // opens sites in the order of a random permutation, so no draw is wasted
+    private static final String PERMUTATION_SCHEDULE = "permutation";
+    // the permutation schedule keeps all n * n sites in one int[]
+    private static final int PERMUTATION_MAX_SIZE = 46340;
+    // adaptive runs never stop on the interval width before this many trials
+    private static final int MIN_ADAPTIVE_TRIALS = 30;
+    // a checkpoint record is appended at most this often, and after the last trial
+    private static final long CHECKPOINT_MILLIS = 1000;
+
+    private final Moments moments;
+    // union-find counts summed over every trial this instance ran, null
+    // unless run with -Dpercolation.instrument=true
+    private final UnionFindStats instrumentation;
+
+    // running count, mean and sum of squared deviations (Welford)
+    private static class Moments {
+        private long count;
+        private double mean;
+        private double m2;
+
+        Moments() {
+        }
+
+        Moments(long count, double mean, double m2) {
+            this.count = count;
+            this.mean = mean;
+            this.m2 = m2;
+        }
+
+        // folds other into this, as if its observations had been added (Chan et al.)
+        void merge(Moments other) {
+            if (other.count == 0) {
+                return;
+            }
+
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+            count = total;
+        }
+
+        void add(double x) {
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+        }
+
+        long count() {
+            return count;
+        }
+
+        double mean() {
+            return count == 0 ? Double.NaN : mean;
+        }
+
+        // sample standard deviation, NaN for fewer than two observations
+        double stddev() {
+            return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1));
+        }
+
+        // half width of the 95% confidence interval
+        double halfWidth() {
+            return 1.96 * stddev() / Math.sqrt(count);
+        }
+    }
+
+    /* *************************************************************************
+     *  Append-only checkpoint of a run over trials [firstTrial, firstTrial +
+     *  trials) of the trial sequence of a seed. A header
+     *
+     *    int MAGIC, int n, long seed, long firstTrial, long trials,
+     *    UTF schedule, boolean adaptive, double halfWidth
+     *
+     *  is followed by 24-byte records  long count, double mean, double m2,
+     *  one per write. The last complete record is the state to resume from;
+     *  trial generators are split from the seed in order, so the generator
+     *  state is the seed plus the number of trials done. An adaptive shard
+     *  is complete once it has converged, even short of its trials.
+     ************************************************************************* */
+    private static class Checkpoint {
+        private static final int MAGIC = 0x50435355;
+        private static final int RECORD_BYTES = 24;
+
+        final int n;
+        final long seed;
+        final long firstTrial;
+        final long trials;
+        final String schedule;
+        final boolean adaptive;
+        final double halfWidth;
+        final Moments moments;
+
+        private final File file;
+        private DataOutputStream out;
+        private long lastWrite;
+
+        private Checkpoint(File file, int n, long seed, long firstTrial, long trials, String schedule,
+                           boolean adaptive, double halfWidth, Moments moments) {
+            this.file = file;
+            this.n = n;
+            this.seed = seed;
+            this.firstTrial = firstTrial;
+            this.trials = trials;
+            this.schedule = schedule;
+            this.adaptive = adaptive;
+            this.halfWidth = halfWidth;
+            this.moments = moments;
+        }
+
+        // has the run done all its trials, or converged if adaptive?
+        boolean complete() {
+            return moments.count() >= trials || converged(moments, adaptive, halfWidth);
+        }
+
+        // reads the header and last complete record of an existing checkpoint
+        static Checkpoint read(File file) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IllegalArgumentException(file + " is not a checkpoint");
+                }
+
+                int n = in.readInt();
+                long seed = in.readLong();
+                long firstTrial = in.readLong();
+                long trials = in.readLong();
+                String schedule = in.readUTF();
+                boolean adaptive = in.readBoolean();
+                double halfWidth = in.readDouble();
+                Moments moments = new Moments();
+
+                while (true) {
+                    long count;
+                    double mean;
+                    double m2;
+                    try {
+                        count = in.readLong();
+                        mean = in.readDouble();
+                        m2 = in.readDouble();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    moments = new Moments(count, mean, m2);
+                }
+
+                return new Checkpoint(file, n, seed, firstTrial, trials, schedule, adaptive, halfWidth, moments);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // resumes from file if it exists, after checking it describes the same
+        // run, otherwise starts it
+        static Checkpoint open(File file, int n, long seed, long firstTrial, long trials, String schedule,
+                               boolean adaptive, double halfWidth) {
+            try {
+                if (file.exists()) {
+                    Checkpoint checkpoint = read(file);
+
+                    if (checkpoint.n != n || checkpoint.seed != seed || checkpoint.firstTrial != firstTrial
+                            || checkpoint.trials != trials || !checkpoint.schedule.equals(schedule)
+                            || checkpoint.adaptive != adaptive
+                            || Double.compare(checkpoint.halfWidth, halfWidth) != 0) {
+                        throw new IllegalArgumentException(file + " belongs to a different run");
+                    }
+
+                    // drop a record cut short by the interruption
+                    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                        long recordBytes = (long) RECORD_BYTES * recordCount(checkpoint);
+                        raf.setLength(headerBytes(schedule) + recordBytes);
+                    }
+
+                    checkpoint.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                    return checkpoint;
+                }
+
+                Checkpoint checkpoint = new Checkpoint(file, n, seed, firstTrial, trials, schedule, adaptive, halfWidth,
+                        new Moments());
+                checkpoint.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                checkpoint.out.writeInt(MAGIC);
+                checkpoint.out.writeInt(n);
+                checkpoint.out.writeLong(seed);
+                checkpoint.out.writeLong(firstTrial);
+                checkpoint.out.writeLong(trials);
+                checkpoint.out.writeUTF(schedule);
+                checkpoint.out.writeBoolean(adaptive);
+                checkpoint.out.writeDouble(halfWidth);
+                checkpoint.out.flush();
+                return checkpoint;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static long headerBytes(String schedule) throws IOException {
+            DataOutputStream header = new DataOutputStream(OutputStream.nullOutputStream());
+            header.writeUTF(schedule);
+            return 4 + 4 + 8 + 8 + 8 + header.size() + 1 + 8;
+        }
+
+        private static long recordCount(Checkpoint checkpoint) throws IOException {
+            long bytes = checkpoint.file.length() - headerBytes(checkpoint.schedule);
+            return bytes / RECORD_BYTES;
+        }
+
+        // appends moments if CHECKPOINT_MILLIS have passed since the last write, or if forced
+        void write(Moments state, boolean force) {
+            long now = System.currentTimeMillis();
+            if (!force && now - lastWrite < CHECKPOINT_MILLIS) {
+                return;
+            }
+
+            try {
+                out.writeLong(state.count);
+                out.writeDouble(state.mean);
+                out.writeDouble(state.m2);
+                out.flush();
+                lastWrite = now;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // state one thread reuses across trials: its grid and, for the
+    // permutation schedule, the site order; when instrumented also the
+    // union-find counts of its trials and the flight recorder event of the
+    // current one
+    private static class Worker {
+        private final Percolation percolation;
+        private final int[] sites;
+        private final UnionFindStats instrumentation;
+        private UnionFindEvent event;
+
+        Worker(int n, String schedule) {
+            percolation = new Percolation(n);
+            sites = schedule.equals(PERMUTATION_SCHEDULE) ? new int[n * n] : null;
+            instrumentation = Percolation.INSTRUMENTED ? new UnionFindStats() : null;
+        }
+
+        void beginTrial() {
+            event = new UnionFindEvent();
+            event.begin();
+        }
+
+        // the grid's counters are cleared by the next trial's reset()
+        void endTrial(int n) {
+            UnionFindStats trial = percolation.instrumentation();
+            trial.commit(event, n);
+            instrumentation.add(trial);
+            event = null;
+        }
+    }
+
+    // runs trials [lo, hi), forking halves until the range fits in one leaf
+    private static class TrialTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int n;
+        private final String schedule;
+        private final ThreadLocal<Worker> workers;
+        private final SplittableRandom[] randoms;
+        private final double[] observations;
+        private final int lo;
+        private final int hi;
+        private final int leafSize;
+
+        TrialTask(int n, String schedule, ThreadLocal<Worker> workers, SplittableRandom[] randoms,
+                  double[] observations, int lo, int hi, int leafSize) {
+            this.n = n;
+            this.schedule = schedule;
+            this.workers = workers;
+            this.randoms = randoms;
+            this.observations = observations;
+            this.lo = lo;
+            this.hi = hi;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= leafSize) {
+                runTrials(n, schedule, workers.get(), randoms, observations, lo, hi);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new TrialTask(n, schedule, workers, randoms, observations, lo, mid, leafSize),
+                    new TrialTask(n, schedule, workers, randoms, observations, mid, hi, leafSize));
+        }
+    }
+
+    // runs the first count trials of randoms into observations, on the pool
+    // if there is one, otherwise on this thread
+    private static void runBatch(ForkJoinPool pool, int n, String schedule, ThreadLocal<Worker> workers,
+                                 SplittableRandom[] randoms, double[] observations, int count) {
+        if (pool == null) {
+            runTrials(n, schedule, workers.get(), randoms, observations, 0, count);
+            return;
+        }
+
+        int leafSize = Math.max(1, count / (pool.getParallelism() * TASKS_PER_WORKER));
+        pool.invoke(new TrialTask(n, schedule, workers, randoms, observations, 0, count, leafSize));
+    }
+
+    private static ForkJoinPool newPool(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism <= 0");
+        return parallelism == 1 ? null : new ForkJoinPool(parallelism);
+    }
+
+    // runs trials [lo, hi) on one thread
+    private static void runTrials(int n, String schedule, Worker worker, SplittableRandom[] randoms,
+                                  double[] observations, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            if (Percolation.INSTRUMENTED) {
+                worker.beginTrial();
+            }
+
+            observations[i] = runTrial(n, schedule, worker, randoms[i]);
+
+            if (Percolation.INSTRUMENTED) {
+                worker.endTrial(n);
+            }
+        }
+    }
+
+    private static double runTrial(int n, String schedule, Worker worker, SplittableRandom random) {
+        switch (schedule) {
+            case UNIFORM_SCHEDULE:
+                return runUniformTrial(n, worker.percolation, random);
+            case PERMUTATION_SCHEDULE:
+                return runPermutationTrial(n, worker.percolation, random, worker.sites);
+            default:
+                throw new IllegalArgumentException("PercolationStats: Unrecognized schedule");
+        }
+    }
+
+    // opens random sites until the grid percolates, returns the open fraction
+    private static double runUniformTrial(int n, Percolation percolation, SplittableRandom random) {
+        percolation.reset();
+
+        while (!percolation.percolates()) {
+            int row = random.nextInt(1, n + 1);
+            int col = random.nextInt(1, n + 1);
+            percolation.open(row, col);
+        }
+
+        return percolation.openSiteCount() / ((double) n * n);
+    }
+
+    // opens the sites of an incremental Fisher-Yates shuffle of sites until
+    // the grid percolates, returns the open fraction
+    private static double runPermutationTrial(int n, Percolation percolation, SplittableRandom random,
+                                              int[] sites) {
+        percolation.reset();
+
+        // restart from the identity, so a trial does not depend on the
+        // trials run before it by the same worker
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = i;
+        }
+
+        for (int k = 0; !percolation.percolates(); k++) {
+            int j = k + random.nextInt(sites.length - k);
+            int site = sites[j];
+            sites[j] = sites[k];
+            sites[k] = site;
+            percolation.open(site);
+        }
+
+        return percolation.openSiteCount() / ((double) n * n);
+    }
 
     // perform independent trials on an n-by-n grid
     public PercolationStats(int n, int trials) {
         if (trials <= 0) {throw new IllegalArgumentException("trials <= 0"); };
 
-        observations = new double[trials];
+        moments = new Moments();
+        Worker worker = new Worker(n, UNIFORM_SCHEDULE);
+        Percolation percolation = worker.percolation;
 
         for (int i = 0; i < trials; i++) {
-            Percolation percolation = new Percolation(n);
+            if (Percolation.INSTRUMENTED) {
+                worker.beginTrial();
+            }
+            percolation.reset();
 
             while (!percolation.percolates()) {
                 int row = StdRandom.uniformInt(1, n + 1);
@@ -20,42 +426,383 @@ public class PercolationStats {
                 percolation.open(row, col);
             }
 
-            observations[i] = percolation.numberOfOpenSites() / (double) (n * n);
+            moments.add(percolation.openSiteCount() / ((double) n * n));
+
+            if (Percolation.INSTRUMENTED) {
+                worker.endTrial(n);
+            }
+        }
+
+        instrumentation = worker.instrumentation;
+    }
+
+    // perform independent trials on an n-by-n grid with parallelism workers;
+    // the same seed gives the same statistics for any parallelism
+    public PercolationStats(int n, int trials, long seed, int parallelism) {
+        this(n, trials, seed, parallelism, UNIFORM_SCHEDULE);
+    }
+
+    // as above, opening sites by the named schedule: "uniform" or "permutation"
+    public PercolationStats(int n, int trials, long seed, int parallelism, String schedule) {
+        this(n, trials, seed, parallelism, schedule, false, 0, null, 0);
+    }
+
+    // perform trials on an n-by-n grid until the 95% confidence interval is
+    // narrower than 2 * halfWidth, or maxTrials trials have run
+    public PercolationStats(int n, double halfWidth, int maxTrials, long seed, int parallelism) {
+        this(n, halfWidth, maxTrials, seed, parallelism, UNIFORM_SCHEDULE);
+    }
+
+    // as above, opening sites by the named schedule: "uniform" or "permutation";
+    // trial i uses the same generator as in a fixed run with the same seed and
+    // the stopping test runs after every trial in order, so the result does
+    // not depend on parallelism either
+    public PercolationStats(int n, double halfWidth, int maxTrials, long seed, int parallelism, String schedule) {
+        this(n, maxTrials, seed, parallelism, schedule, true, halfWidth, null, 0);
+    }
+
+    // perform trials [firstTrial, firstTrial + trials) of the seed's trial
+    // sequence, appending progress to the checkpoint file and resuming from it
+    // if it already exists; checkpoints of disjoint shards can be merged
+    public PercolationStats(int n, int trials, long seed, int parallelism, String schedule,
+                            String checkpoint, long firstTrial) {
+        this(n, trials, seed, parallelism, schedule, false, 0, checkpoint, firstTrial);
+    }
+
+    // combines the checkpoints of shards of one run into a single result;
+    // every shard must have completed all of its trials, or converged if it
+    // ran adaptively
+    public PercolationStats(String[] checkpoints) {
+        if (checkpoints == null || checkpoints.length == 0) {
+            throw new IllegalArgumentException("no checkpoints to merge");
+        }
+
+        moments = new Moments();
+        // the checkpoints do not record union-find counts
+        instrumentation = null;
+        Checkpoint[] shards = new Checkpoint[checkpoints.length];
+
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = Checkpoint.read(new File(checkpoints[i]));
+            Checkpoint shard = shards[i];
+
+            if (shard.n != shards[0].n || shard.seed != shards[0].seed || !shard.schedule.equals(shards[0].schedule)
+                    || shard.adaptive != shards[0].adaptive
+                    || Double.compare(shard.halfWidth, shards[0].halfWidth) != 0) {
+                throw new IllegalArgumentException(checkpoints[i] + " belongs to a different run");
+            }
+
+            if (!shard.complete()) {
+                throw new IllegalArgumentException(checkpoints[i] + " is incomplete: " + shard.moments.count()
+                        + " of " + shard.trials + " trials" + (shard.adaptive ? ", not converged" : ""));
+            }
+
+            for (int j = 0; j < i; j++) {
+                Checkpoint other = shards[j];
+                if (shard.firstTrial < other.firstTrial + other.trials
+                        && other.firstTrial < shard.firstTrial + shard.trials) {
+                    throw new IllegalArgumentException(checkpoints[i] + " overlaps " + checkpoints[j]);
+                }
+            }
+
+            moments.merge(shard.moments);
         }
     }
 
+    // common engine: an adaptive run stops once the half width is below
+    // halfWidth, which is ignored otherwise; checkpoint may be null
+    private PercolationStats(int n, int trials, long seed, int parallelism, String schedule,
+                             boolean adaptive, double halfWidth, String checkpoint, long firstTrial) {
+        if (trials <= 0) throw new IllegalArgumentException("trials <= 0");
+        if (adaptive && !(halfWidth > 0)) throw new IllegalArgumentException("halfWidth <= 0");
+        if (firstTrial < 0) throw new IllegalArgumentException("firstTrial < 0");
+        if (schedule.equals(PERMUTATION_SCHEDULE) && n > PERMUTATION_MAX_SIZE) {
+            throw new IllegalArgumentException("the permutation schedule requires n <= " + PERMUTATION_MAX_SIZE
+                    + ", use the uniform schedule for larger grids");
+        }
+
+        Checkpoint state = checkpoint == null
+                ? null
+                : Checkpoint.open(new File(checkpoint), n, seed, firstTrial, trials, schedule, adaptive, halfWidth);
+        moments = state == null ? new Moments() : state.moments;
+
+        // one generator per trial, split from the root in trial order, so a
+        // trial sees the same stream whichever worker happens to run it
+        SplittableRandom root = new SplittableRandom(seed);
+        for (long i = 0; i < firstTrial + moments.count(); i++) {
+            root.split();
+        }
+
+        // every worker created, to sum their union-find counts at the end
+        ConcurrentLinkedQueue<Worker> created = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> {
+            Worker worker = new Worker(n, schedule);
+            created.add(worker);
+            return worker;
+        });
+        ForkJoinPool pool = newPool(parallelism);
+        boolean batched = adaptive || state != null;
+        int batchSize = !batched ? trials : pool == null ? 1 : parallelism * TASKS_PER_WORKER;
+        SplittableRandom[] randoms = new SplittableRandom[batchSize];
+        double[] observations = new double[batchSize];
+
+        try {
+            // a resumed adaptive run may have converged already
+            while (moments.count() < trials && !converged(adaptive, halfWidth)) {
+                int count = (int) Math.min(batchSize, trials - moments.count());
+
+                for (int i = 0; i < count; i++) {
+                    randoms[i] = root.split();
+                }
+
+                runBatch(pool, n, schedule, workers, randoms, observations, count);
+
+                for (int i = 0; i < count && !converged(adaptive, halfWidth); i++) {
+                    moments.add(observations[i]);
+                }
+
+                if (converged(adaptive, halfWidth)) {
+                    break;
+                }
+
+                if (state != null) {
+                    state.write(moments, false);
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+            // this thread ran the trials itself without a pool, and may have
+            // helped with them otherwise; its worker holds a whole grid, so
+            // do not leave it behind on a thread that outlives the run
+            workers.remove();
+            if (state != null) {
+                state.write(moments, true);
+                state.close();
+            }
+        }
+
+        if (Percolation.INSTRUMENTED) {
+            instrumentation = new UnionFindStats();
+            for (Worker worker : created) {
+                instrumentation.add(worker.instrumentation);
+            }
+        } else {
+            instrumentation = null;
+        }
+    }
+
+    // has an adaptive run reached its target width?
+    private boolean converged(boolean adaptive, double halfWidth) {
+        return converged(moments, adaptive, halfWidth);
+    }
+
+    private static boolean converged(Moments moments, boolean adaptive, double halfWidth) {
+        return adaptive && moments.count() >= MIN_ADAPTIVE_TRIALS && moments.halfWidth() < halfWidth;
+    }
+
+    // number of trials performed
+    public int numberOfTrials() {
+        return (int) moments.count();
+    }
+
+    // union-find call counts and find path lengths summed over the trials
+    // run, including any an adaptive run ran past its target and trials
+    // resumed from a checkpoint not at all; null unless run with
+    // -Dpercolation.instrument=true
+    public UnionFindStats instrumentation() {
+        return instrumentation == null ? null : instrumentation.copy();
+    }
+
     // sample mean of percolation threshold
     public double mean() {
-        return StdStats.mean(observations);
+        return moments.mean();
     }
 
     // sample standard deviation of percolation threshold
     public double stddev() {
-        return StdStats.stddev(observations);
+        return moments.stddev();
     }
 
     // low endpoint of 95% confidence interval
     public double confidenceLo() {
-        return mean() - 1.96 * stddev() / Math.sqrt(observations.length);
+        return mean() - moments.halfWidth();
     }
 
     // high endpoint of 95% confidence interval
     public double confidenceHi() {
-        return mean() + 1.96 * stddev() / Math.sqrt(observations.length);
+        return mean() + moments.halfWidth();
     }
 
     // test client (see below)
-    public static void main(String[] args) {
+    // usage: PercolationStats <n> <trials> [seed] [parallelism] [schedule]
+    //                         [-halfWidth w] [-checkpoint file] [-first trial]
+    //        PercolationStats -merge <checkpoint> ...
+    //        PercolationStats -test
+    public static void main(String[] args) throws IOException {
+        if (args.length == 1 && args[0].equals("-test")) {
+            test();
+            return;
+        }
+
+        if (args.length >= 2 && args[0].equals("-merge")) {
+            String[] checkpoints = new String[args.length - 1];
+            System.arraycopy(args, 1, checkpoints, 0, checkpoints.length);
+            print(new PercolationStats(checkpoints));
+            return;
+        }
+
         if (args.length < 2) {
-            throw new IllegalArgumentException("usage: PercolationStats <n> <trials>");
+            throw new IllegalArgumentException("usage: PercolationStats <n> <trials> [seed] [parallelism] [schedule]"
+                    + " [-halfWidth w] [-checkpoint file] [-first trial] | -merge <checkpoint> ... | -test");
         }
 
         int n = Integer.parseInt(args[0]);
         int trials = Integer.parseInt(args[1]);
 
-        PercolationStats percolationStats = new PercolationStats(n, trials);
+        if (args.length < 3) {
+            print(new PercolationStats(n, trials));
+            return;
+        }
+
+        long seed = Long.parseLong(args[2]);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        String schedule = UNIFORM_SCHEDULE;
+        boolean adaptive = false;
+        double halfWidth = 0;
+        String checkpoint = null;
+        long firstTrial = 0;
+
+        int positional = 3;
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "-halfWidth":
+                    adaptive = true;
+                    halfWidth = Double.parseDouble(args[++i]);
+                    break;
+                case "-checkpoint":
+                    checkpoint = args[++i];
+                    break;
+                case "-first":
+                    firstTrial = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    if (positional++ == 3) {
+                        parallelism = Integer.parseInt(args[i]);
+                    } else {
+                        schedule = args[i];
+                    }
+            }
+        }
+
+        print(new PercolationStats(n, trials, seed, parallelism, schedule, adaptive, halfWidth, checkpoint,
+                firstTrial));
+    }
+
+    // unit testing
+    private static void test() throws IOException {
+        File directory = Files.createTempDirectory("percolation").toFile();
+        File first = new File(directory, "first.ckpt");
+        File second = new File(directory, "second.ckpt");
+
+        try {
+            // Test 1
+            StdOut.println("--- Test 1: Merged shards equal one run ---");
+            PercolationStats whole = new PercolationStats(20, 40, 7, 1, UNIFORM_SCHEDULE);
+            new PercolationStats(20, 25, 7, 1, UNIFORM_SCHEDULE, first.getPath(), 0);
+            new PercolationStats(20, 15, 7, 1, UNIFORM_SCHEDULE, second.getPath(), 25);
+            PercolationStats merged = new PercolationStats(new String[] {first.getPath(), second.getPath()});
+            assert merged.numberOfTrials() == 40;
+            assert Math.abs(merged.mean() - whole.mean()) < 1e-12;
+            assert Math.abs(merged.stddev() - whole.stddev()) < 1e-12;
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 2
+            StdOut.println("--- Test 2: A truncated shard is rejected ---");
+            // keep the header and no record, as if preempted before the first write
+            try (RandomAccessFile raf = new RandomAccessFile(second, "rw")) {
+                raf.setLength(Checkpoint.headerBytes(UNIFORM_SCHEDULE));
+            }
+            try {
+                new PercolationStats(new String[] {first.getPath(), second.getPath()});
+                assert false;
+            } catch (IllegalArgumentException e) {
+                StdOut.println(e.getMessage());
+                assert e.getMessage().startsWith(second.getPath());
+            }
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 3
+            StdOut.println("--- Test 3: A shard stopped partway is rejected, and resumes ---");
+            Checkpoint partial = Checkpoint.open(second, 20, 7, 25, 15, UNIFORM_SCHEDULE, false, 0);
+            partial.write(new Moments(6, 0.59, 0.001), true);
+            partial.close();
+            try {
+                new PercolationStats(new String[] {first.getPath(), second.getPath()});
+                assert false;
+            } catch (IllegalArgumentException e) {
+                StdOut.println(e.getMessage());
+                assert e.getMessage().equals(second.getPath() + " is incomplete: 6 of 15 trials");
+            }
+            new PercolationStats(20, 15, 7, 1, UNIFORM_SCHEDULE, second.getPath(), 25);
+            merged = new PercolationStats(new String[] {first.getPath(), second.getPath()});
+            assert merged.numberOfTrials() == 40;
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 4
+            StdOut.println("--- Test 4: Adaptive runs need a positive half width ---");
+            for (double halfWidth : new double[] {0, -0.01, Double.NaN}) {
+                try {
+                    new PercolationStats(20, halfWidth, 100, 7, 1);
+                    assert false;
+                } catch (IllegalArgumentException e) {
+                    assert e.getMessage().equals("halfWidth <= 0");
+                }
+            }
+            PercolationStats adaptive = new PercolationStats(20, 0.01, 1000, 7, 1);
+            assert adaptive.numberOfTrials() >= MIN_ADAPTIVE_TRIALS && adaptive.numberOfTrials() < 1000;
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 5
+            StdOut.println("--- Test 5: The permutation schedule rejects grids past its int[] ---");
+            try {
+                new PercolationStats(PERMUTATION_MAX_SIZE + 1, 1, 7, 1, PERMUTATION_SCHEDULE);
+                assert false;
+            } catch (IllegalArgumentException e) {
+                StdOut.println(e.getMessage());
+            }
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 6
+            StdOut.println("--- Test 6: A converged adaptive shard merges, and resumes only with its half width ---");
+            first.delete();
+            adaptive = new PercolationStats(20, 1000, 7, 1, UNIFORM_SCHEDULE, true, 0.01, first.getPath(), 0);
+            assert adaptive.numberOfTrials() < 1000;
+            merged = new PercolationStats(new String[] {first.getPath()});
+            assert merged.numberOfTrials() == adaptive.numberOfTrials();
+            assert Math.abs(merged.mean() - adaptive.mean()) < 1e-12;
+            try {
+                new PercolationStats(20, 1000, 7, 1, UNIFORM_SCHEDULE, true, 0.02, first.getPath(), 0);
+                assert false;
+            } catch (IllegalArgumentException e) {
+                StdOut.println(e.getMessage());
+                assert e.getMessage().equals(first.getPath() + " belongs to a different run");
+            }
+            StdOut.println("--- Test Pass ---\n");
+        } finally {
+            first.delete();
+            second.delete();
+            directory.delete();
+        }
+    }
+
+    private static void print(PercolationStats percolationStats) {
+        StdOut.println("trials = " + percolationStats.numberOfTrials());
         StdOut.println("mean = " + percolationStats.mean());
         StdOut.println("stddev = " + percolationStats.stddev());
         StdOut.println("95% confidence interval = [" + percolationStats.confidenceLo() + ", " + percolationStats.confidenceHi() + "]");
+
+        if (percolationStats.instrumentation() != null) {
+            StdOut.println(percolationStats.instrumentation());
+        }
     }
 }
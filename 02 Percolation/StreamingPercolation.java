@@ -0,0 +1,384 @@
+/* *****************************************************************************
+ *  Row-at-a-time Hoshen-Kopelman cluster labeling.
+ *
+ *  Only the labels of the previous and the current row are kept, together
+ *  with a union-find over those labels. After every row the labels still
+ *  present are renumbered 0, 1, 2, ..., and a cluster whose label no longer
+ *  appears is complete and goes into the statistics. Memory is O(n) for an
+ *  n-wide grid of any height.
+ *
+ *  A grid percolates if a cluster touching the first row is still alive in
+ *  the last row.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+public class StreamingPercolation {
+    private final int width;
+
+    // labels of the previous and current row, -1 for a blocked site
+    private int[] previousLabels;
+    private int[] currentLabels;
+    private int previousCount;
+
+    // union-find over the labels of one row pair
+    private final int[] parents;
+    private final int[] remap;
+    // size and touches-top flag per label, double buffered across renumbering
+    private long[] sizes;
+    private long[] nextSizes;
+    private boolean[] tops;
+    private boolean[] nextTops;
+
+    private long rows;
+    private long openSites;
+    private long clusters;
+    private long largest;
+    private double sumSizes;
+    private double sumSquares;
+    private boolean percolates;
+
+    // labels every row of the source
+    public StreamingPercolation(RowSource source) {
+        width = source.width();
+        if (width <= 0) throw new IllegalArgumentException("width <= 0");
+
+        previousLabels = new int[width];
+        currentLabels = new int[width];
+        parents = new int[2 * width];
+        remap = new int[2 * width];
+        sizes = new long[2 * width];
+        nextSizes = new long[2 * width];
+        tops = new boolean[2 * width];
+        nextTops = new boolean[2 * width];
+
+        for (int i = 0; i < width; i++) {
+            previousLabels[i] = -1;
+        }
+
+        long[] row = new long[(width + 63) >>> 6];
+        while (source.readRow(row)) {
+            label(row, rows == 0);
+            rows++;
+        }
+
+        if (rows == 0) throw new IllegalArgumentException("source has no rows");
+
+        // every cluster left in the last row is complete
+        for (int i = 0; i < previousCount; i++) {
+            if (tops[i]) percolates = true;
+            record(sizes[i]);
+        }
+    }
+
+    private void label(long[] row, boolean first) {
+        int next = previousCount;
+
+        for (int i = 0; i < previousCount; i++) {
+            parents[i] = i;
+        }
+
+        for (int col = 0; col < width; col++) {
+            if ((row[col >>> 6] & (1L << col)) == 0) {
+                currentLabels[col] = -1;
+                continue;
+            }
+
+            openSites++;
+            int up = previousLabels[col];
+            int left = col > 0 ? currentLabels[col - 1] : -1;
+            int label;
+
+            if (up < 0 && left < 0) {
+                label = next++;
+                parents[label] = label;
+                sizes[label] = 0;
+                tops[label] = first;
+            } else if (left < 0) {
+                label = find(up);
+            } else if (up < 0) {
+                label = find(left);
+            } else {
+                label = union(up, left);
+            }
+
+            sizes[label]++;
+            currentLabels[col] = label;
+        }
+
+        // renumber the clusters that reach this row
+        for (int i = 0; i < next; i++) {
+            remap[i] = -1;
+        }
+
+        int count = 0;
+        for (int col = 0; col < width; col++) {
+            if (currentLabels[col] < 0) continue;
+
+            int root = find(currentLabels[col]);
+            if (remap[root] < 0) {
+                remap[root] = count;
+                nextSizes[count] = sizes[root];
+                nextTops[count] = tops[root];
+                count++;
+            }
+            currentLabels[col] = remap[root];
+        }
+
+        // clusters of the previous row that did not reach this one are complete
+        for (int i = 0; i < previousCount; i++) {
+            if (parents[i] == i && remap[i] < 0) {
+                record(sizes[i]);
+            }
+        }
+
+        int[] labels = previousLabels;
+        previousLabels = currentLabels;
+        currentLabels = labels;
+        previousCount = count;
+
+        long[] swapSizes = sizes;
+        sizes = nextSizes;
+        nextSizes = swapSizes;
+
+        boolean[] swapTops = tops;
+        tops = nextTops;
+        nextTops = swapTops;
+    }
+
+    private int find(int p) {
+        while (parents[p] != p) {
+            parents[p] = parents[parents[p]];
+            p = parents[p];
+        }
+        return p;
+    }
+
+    // merges the clusters of p and q, returns the root of the result
+    private int union(int p, int q) {
+        int firstRoot = find(p);
+        int secondRoot = find(q);
+
+        if (firstRoot == secondRoot) {
+            return firstRoot;
+        }
+
+        if (sizes[firstRoot] < sizes[secondRoot]) {
+            int temp = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = temp;
+        }
+
+        parents[secondRoot] = firstRoot;
+        sizes[firstRoot] += sizes[secondRoot];
+        tops[firstRoot] |= tops[secondRoot];
+        return firstRoot;
+    }
+
+    private void record(long size) {
+        clusters++;
+        sumSizes += size;
+        sumSquares += (double) size * size;
+        largest = Math.max(largest, size);
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return percolates;
+    }
+
+    // number of rows read from the source
+    public long numberOfRows() {
+        return rows;
+    }
+
+    // returns the number of open sites
+    public long numberOfOpenSites() {
+        return openSites;
+    }
+
+    // number of distinct clusters of open sites
+    public long numberOfClusters() {
+        return clusters;
+    }
+
+    // size of the largest cluster
+    public long largestCluster() {
+        return largest;
+    }
+
+    // mean cluster size over clusters
+    public double meanClusterSize() {
+        return clusters == 0 ? 0 : sumSizes / clusters;
+    }
+
+    // mean size of the cluster containing a random open site, sum s^2 / sum s
+    public double weightedMeanClusterSize() {
+        return sumSizes == 0 ? 0 : sumSquares / sumSizes;
+    }
+
+    // test client: StreamingPercolation <width> <rows> <p> <seed>
+    //          or: StreamingPercolation -file <path> <width>
+    public static void main(String[] args) {
+        RowSource source;
+
+        if (args.length == 3 && args[0].equals("-file")) {
+            source = new MappedBitFileRowSource(Paths.get(args[1]), Integer.parseInt(args[2]));
+        } else if (args.length == 4) {
+            source = new RandomRowSource(Integer.parseInt(args[0]), Long.parseLong(args[1]),
+                    Double.parseDouble(args[2]), Long.parseLong(args[3]));
+        } else {
+            throw new IllegalArgumentException(
+                    "usage: StreamingPercolation <width> <rows> <p> <seed> | -file <path> <width>");
+        }
+
+        StreamingPercolation percolation = new StreamingPercolation(source);
+        StdOut.println("rows = " + percolation.numberOfRows());
+        StdOut.println("open sites = " + percolation.numberOfOpenSites());
+        StdOut.println("percolates = " + percolation.percolates());
+        StdOut.println("clusters = " + percolation.numberOfClusters());
+        StdOut.println("largest cluster = " + percolation.largestCluster());
+        StdOut.println("mean cluster size = " + percolation.meanClusterSize());
+        StdOut.println("weighted mean cluster size = " + percolation.weightedMeanClusterSize());
+    }
+}
+
+interface RowSource {
+    // number of sites per row
+    int width();
+
+    // fills row with the next row, bit (col % 64) of row[col / 64] set for an
+    // open site; returns false when there are no more rows
+    boolean readRow(long[] row);
+}
+
+// rows where each site is open independently with probability p
+class RandomRowSource implements RowSource {
+    private final int width;
+    private final long height;
+    private final double p;
+    private final SplittableRandom random;
+    private long row;
+
+    RandomRowSource(int width, long height, double p, long seed) {
+        if (p < 0 || p > 1) throw new IllegalArgumentException("p must be in the range of [0, 1]");
+        this.width = width;
+        this.height = height;
+        this.p = p;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public boolean readRow(long[] bits) {
+        if (row == height) {
+            return false;
+        }
+        row++;
+
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = 0;
+        }
+        for (int col = 0; col < width; col++) {
+            if (random.nextDouble() < p) {
+                bits[col >>> 6] |= 1L << col;
+            }
+        }
+        return true;
+    }
+}
+
+// rows read from a file of (width + 7) / 8 bytes per row, site col in bit
+// (col % 8) of byte col / 8; the file is mapped a window of rows at a time
+class MappedBitFileRowSource implements RowSource {
+    private static final long WINDOW_BYTES = 1L << 28;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int rowBytes;
+    private final long height;
+    private final long rowsPerWindow;
+    private MappedByteBuffer window;
+    private long windowFirstRow;
+    private long row;
+
+    MappedBitFileRowSource(Path path, int width) {
+        if (width <= 0) throw new IllegalArgumentException("width <= 0");
+        this.width = width;
+        this.rowBytes = (width + 7) >>> 3;
+        this.rowsPerWindow = Math.max(1, WINDOW_BYTES / rowBytes);
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            height = channel.size() / rowBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public boolean readRow(long[] bits) {
+        if (row == height) {
+            close();
+            return false;
+        }
+
+        if (window == null || row - windowFirstRow == rowsPerWindow) {
+            map(row);
+        }
+
+        int base = (int) ((row - windowFirstRow) * rowBytes);
+        int full = rowBytes >>> 3;
+        for (int i = 0; i < full; i++) {
+            bits[i] = window.getLong(base + (i << 3));
+        }
+        if (full < bits.length) {
+            long word = 0;
+            for (int j = full << 3; j < rowBytes; j++) {
+                word |= (window.get(base + j) & 0xFFL) << ((j & 7) << 3);
+            }
+            bits[full] = word;
+        }
+
+        // bits past the width are padding
+        if ((width & 63) != 0) {
+            bits[bits.length - 1] &= -1L >>> -width;
+        }
+
+        row++;
+        return true;
+    }
+
+    private void map(long firstRow) {
+        long rowCount = Math.min(rowsPerWindow, height - firstRow);
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, firstRow * rowBytes, rowCount * rowBytes);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowFirstRow = firstRow;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
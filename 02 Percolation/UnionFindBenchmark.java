@@ -0,0 +1,270 @@
+/* *****************************************************************************
+ *  Compares the union-find backends of Percolation on three opening orders:
+ *
+ *    random  every site once, in a uniformly random order
+ *    rows    every site once, row by row, left to right
+ *    chain   a serpentine path (full even rows joined by one site in each odd
+ *            row); every other path site is opened first as a singleton,
+ *            then the gaps are filled in path order, so on rightward rows
+ *            each gap links the chain built so far under the next singleton
+ *            and unweighted quick-union trees grow as deep as the path
+ *
+ *  Reports opens per second, allocated bytes per open and the p50 and p99
+ *  latency of isFull() (one connected() call) on random already opened
+ *  sites. Every few opens a batch of PROBES_PER_SAMPLE isFull() calls is
+ *  timed as a whole and divided, so one sample is the mean of a batch: a
+ *  single call is too short to time against the overhead of nanoTime(). The
+ *  probes are left out of opens per second, and the sample count is printed.
+ *  A run that exceeds the time budget is abandoned and reported as a timeout.
+ *
+ *  By default n runs from 64 to 8192; MyQuickFindUF and MyQuickUnionUF, whose
+ *  cost grows quadratically on these workloads, only up to QUADRATIC_MAX_SIZE
+ *  unless sizes are given explicitly. n = 8192 needs a heap of about 2 GB.
+ *
+ *  usage: java UnionFindBenchmark [n ...]
+ *         -Dbenchmark.budget=<seconds per run>   (default 10)
+ *         -Dbenchmark.iterations=<measured runs> (default 3)
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class UnionFindBenchmark {
+    private static final String[] BACKENDS = {
+            "MyQuickFindUF",
+            "MyQuickUnionUF",
+            "MyWeightedQuickUnionUF",
+            "MyWeightedPathHalvingUF",
+            "AlgsWeightedQuickUnionUF"
+    };
+    private static final String[] WORKLOADS = {"random", "rows", "chain"};
+    private static final String[] QUADRATIC_BACKENDS = {"MyQuickFindUF", "MyQuickUnionUF"};
+    private static final int[] DEFAULT_SIZES = {64, 256, 1024, 4096, 8192};
+    private static final int QUADRATIC_MAX_SIZE = 1024;
+
+    private static final long BUDGET_NANOS = Long.getLong("benchmark.budget", 10) * 1_000_000_000L;
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 3);
+    private static final int WARMUP_ITERATIONS = 1;
+    private static final long SEED = 20240101L;
+
+    // a latency sample is taken every SAMPLE_EVERY opens, from a timed batch
+    // of PROBES_PER_SAMPLE isFull() calls
+    private static final int SAMPLE_EVERY = 16;
+    private static final int PROBES_PER_SAMPLE = 32;
+    // elapsed time is checked every CHECK_EVERY opens
+    private static final int CHECK_EVERY = 1024;
+
+    private static class Result {
+        public long opens;
+        public long nanos;
+        public long bytes;
+        public double[] latencies;
+        public int latencyCount;
+        public boolean timedOut;
+        // isFull() results, so the probes cannot be optimized away
+        public int full;
+    }
+
+    // site indices in row-major order, 0-based
+    private static int[] workload(String name, int n) {
+        int[] sites = new int[n * n];
+
+        switch (name) {
+            case "random": {
+                for (int i = 0; i < sites.length; i++) {
+                    sites[i] = i;
+                }
+                SplittableRandom random = new SplittableRandom(SEED);
+                for (int i = sites.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int temp = sites[i];
+                    sites[i] = sites[j];
+                    sites[j] = temp;
+                }
+                break;
+            }
+            case "rows":
+                for (int i = 0; i < sites.length; i++) {
+                    sites[i] = i;
+                }
+                break;
+            case "chain": {
+                int[] path = new int[sites.length];
+                int length = 0;
+                for (int row = 0; row < n; row++) {
+                    boolean rightward = row % 4 == 0;
+                    if (row % 2 == 1) {
+                        path[length++] = row * n + (row % 4 == 1 ? n - 1 : 0);
+                        continue;
+                    }
+                    for (int col = 0; col < n; col++) {
+                        path[length++] = row * n + (rightward ? col : n - 1 - col);
+                    }
+                }
+                int k = 0;
+                for (int i = 1; i < length; i += 2) {
+                    sites[k++] = path[i];
+                }
+                for (int i = 0; i < length; i += 2) {
+                    sites[k++] = path[i];
+                }
+                sites = Arrays.copyOf(sites, k);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("UnionFindBenchmark: Unrecognized workload");
+        }
+
+        return sites;
+    }
+
+    private static long allocatedBytes(ThreadMXBean bean) {
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static Result run(String backend, int n, int[] sites, ThreadMXBean bean) {
+        Result result = new Result();
+        result.latencies = new double[sites.length / SAMPLE_EVERY + 1];
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] probes = new int[PROBES_PER_SAMPLE];
+        long probeNanos = 0;
+
+        long startBytes = allocatedBytes(bean);
+        long start = System.nanoTime();
+        Percolation percolation = new Percolation(n, backend);
+        int i = 0;
+
+        for (; i < sites.length; i++) {
+            int row = sites[i] / n + 1;
+            int col = sites[i] % n + 1;
+            percolation.open(row, col);
+
+            if (i % SAMPLE_EVERY == 0) {
+                long before = System.nanoTime();
+                for (int k = 0; k < probes.length; k++) {
+                    probes[k] = sites[random.nextInt(i + 1)];
+                }
+                long timed = System.nanoTime();
+                for (int probe : probes) {
+                    if (percolation.isFull(probe / n + 1, probe % n + 1)) {
+                        result.full++;
+                    }
+                }
+                long after = System.nanoTime();
+                result.latencies[result.latencyCount++] = (after - timed) / (double) PROBES_PER_SAMPLE;
+                probeNanos += after - before;
+            }
+
+            if (i % CHECK_EVERY == 0 && System.nanoTime() - start > BUDGET_NANOS) {
+                result.timedOut = true;
+                break;
+            }
+        }
+
+        result.nanos = System.nanoTime() - start - probeNanos;
+        result.bytes = allocatedBytes(bean) - startBytes;
+        result.opens = i;
+        return result;
+    }
+
+    private static void report(String backend, String workload, int n, Result[] results) {
+        long opens = 0;
+        long nanos = 0;
+        long bytes = 0;
+        int latencyCount = 0;
+
+        for (Result result : results) {
+            opens += result.opens;
+            nanos += result.nanos;
+            bytes += result.bytes;
+            latencyCount += result.latencyCount;
+        }
+
+        double[] latencies = new double[latencyCount];
+        int k = 0;
+        for (Result result : results) {
+            System.arraycopy(result.latencies, 0, latencies, k, result.latencyCount);
+            k += result.latencyCount;
+        }
+        Arrays.sort(latencies);
+
+        StdOut.printf("%-26s %-7s %6d %14.0f %12.2f %10.1f %10.1f %9d%n",
+                backend, workload, n,
+                opens / (nanos / 1e9),
+                bytes / (double) opens,
+                percentile(latencies, 50),
+                percentile(latencies, 99),
+                latencies.length);
+    }
+
+    // the p-th percentile of sorted values, 0 if there are none
+    private static double percentile(double[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, sorted.length * (long) p / 100)];
+    }
+
+    private static boolean isQuadratic(String backend) {
+        for (String quadratic : QUADRATIC_BACKENDS) {
+            if (quadratic.equals(backend)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        boolean explicitSizes = args.length > 0;
+
+        if (explicitSizes) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        StdOut.printf("%-26s %-7s %6s %14s %12s %10s %10s %9s%n",
+                "backend", "order", "n", "opens/s", "bytes/open", "p50 ns", "p99 ns", "samples");
+
+        for (int n : sizes) {
+            for (String workload : WORKLOADS) {
+                int[] sites = workload(workload, n);
+
+                for (String backend : BACKENDS) {
+                    if (!explicitSizes && n > QUADRATIC_MAX_SIZE && isQuadratic(backend)) {
+                        continue;
+                    }
+
+                    boolean timedOut = false;
+
+                    for (int i = 0; i < WARMUP_ITERATIONS && !timedOut; i++) {
+                        timedOut = run(backend, n, sites, bean).timedOut;
+                    }
+
+                    Result[] results = new Result[ITERATIONS];
+                    for (int i = 0; i < ITERATIONS && !timedOut; i++) {
+                        results[i] = run(backend, n, sites, bean);
+                        timedOut = results[i].timedOut;
+                    }
+
+                    if (timedOut) {
+                        StdOut.printf("%-26s %-7s %6d %14s%n", backend, workload, n, "timeout");
+                        continue;
+                    }
+
+                    report(backend, workload, n, results);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/* *****************************************************************************
+ *  JDK Flight Recorder event PercolationStats commits per trial when run
+ *  with -Dpercolation.instrument=true, see UnionFindStats.
+ **************************************************************************** */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// one trial of PercolationStats, with the calls it made into the union-find
+@Name("percolation.UnionFind")
+@Label("Percolation Trial")
+@Category("Percolation")
+@Description("Union-find calls and find path lengths of one percolation trial")
+class UnionFindEvent extends Event {
+    @Label("Grid Size")
+    int n;
+
+    @Label("Opens")
+    long opens;
+
+    @Label("isFull Calls")
+    long fullQueries;
+
+    @Label("percolates Calls")
+    long percolatesQueries;
+
+    @Label("Unions")
+    long unions;
+
+    @Label("connected Calls")
+    long connectedCalls;
+
+    @Label("Finds")
+    long finds;
+
+    @Label("Lookups")
+    long lookups;
+
+    @Label("Mean Path Length")
+    double meanPathLength;
+
+    @Label("P99 Path Length")
+    int p99PathLength;
+
+    @Label("Max Path Length")
+    @Description("Longest path from a looked up site to its root")
+    int maxPathLength;
+}
@@ -0,0 +1,255 @@
+/* *****************************************************************************
+ *  Call counts and find path lengths of an instrumented union-find.
+ *
+ *  Run with -Dpercolation.instrument=true to wrap every union-find backend of
+ *  Percolation in InstrumentedUF. Every union(), connected() and find() is
+ *  counted, and so is the length of the path from each site it looks up to
+ *  the root, measured before the lookup. The deepest path seen is the height
+ *  of the tallest tree that lookups have reached. PercolationStats records
+ *  one UnionFindEvent per trial for JDK Flight Recorder, e.g.
+ *
+ *    java -Dpercolation.instrument=true -Dpercolation.uf=MyQuickUnionUF \
+ *        -XX:StartFlightRecording=filename=uf.jfr PercolationStats 200 100 1
+ *    jfr print --events percolation.UnionFind uf.jfr
+ *
+ *  Without the property the wrapper is never created, so the backends run
+ *  exactly as before.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+
+public class UnionFindStats {
+    // path lengths of PATH_BUCKETS - 1 and more share the last bucket
+    public static final int PATH_BUCKETS = 64;
+
+    // Percolation calls
+    private long opens;
+    private long fullQueries;
+    private long percolatesQueries;
+
+    // union-find calls
+    private long unions;
+    private long connectedCalls;
+    private long finds;
+
+    // lookups: every site union() and connected() look up, and find() itself
+    private final long[] pathLengths = new long[PATH_BUCKETS];
+    private long lookups;
+    private long totalPathLength;
+    private int maxPathLength;
+
+    void recordOpen() {
+        opens++;
+    }
+
+    void recordFullQuery() {
+        fullQueries++;
+    }
+
+    void recordPercolatesQuery() {
+        percolatesQueries++;
+    }
+
+    void recordUnion() {
+        unions++;
+    }
+
+    void recordConnected() {
+        connectedCalls++;
+    }
+
+    void recordFind() {
+        finds++;
+    }
+
+    void recordPath(int length) {
+        pathLengths[Math.min(length, PATH_BUCKETS - 1)]++;
+        lookups++;
+        totalPathLength += length;
+        maxPathLength = Math.max(maxPathLength, length);
+    }
+
+    void clear() {
+        opens = 0;
+        fullQueries = 0;
+        percolatesQueries = 0;
+        unions = 0;
+        connectedCalls = 0;
+        finds = 0;
+        Arrays.fill(pathLengths, 0);
+        lookups = 0;
+        totalPathLength = 0;
+        maxPathLength = 0;
+    }
+
+    // folds the counts of other into this
+    void add(UnionFindStats other) {
+        opens += other.opens;
+        fullQueries += other.fullQueries;
+        percolatesQueries += other.percolatesQueries;
+        unions += other.unions;
+        connectedCalls += other.connectedCalls;
+        finds += other.finds;
+        for (int i = 0; i < PATH_BUCKETS; i++) {
+            pathLengths[i] += other.pathLengths[i];
+        }
+        lookups += other.lookups;
+        totalPathLength += other.totalPathLength;
+        maxPathLength = Math.max(maxPathLength, other.maxPathLength);
+    }
+
+    UnionFindStats copy() {
+        UnionFindStats copy = new UnionFindStats();
+        copy.add(this);
+        return copy;
+    }
+
+    // number of open() calls, including ones on sites already open
+    public long opens() {
+        return opens;
+    }
+
+    // number of isFull() calls
+    public long fullQueries() {
+        return fullQueries;
+    }
+
+    // number of percolates() calls
+    public long percolatesQueries() {
+        return percolatesQueries;
+    }
+
+    public long unions() {
+        return unions;
+    }
+
+    public long connectedCalls() {
+        return connectedCalls;
+    }
+
+    public long finds() {
+        return finds;
+    }
+
+    // number of path lengths measured; zero for a backend that cannot tell
+    public long lookups() {
+        return lookups;
+    }
+
+    // number of lookups whose path had the given length, the last bucket
+    // counting every path of PATH_BUCKETS - 1 links or more
+    public long pathLengthCount(int length) {
+        if (length < 0 || length >= PATH_BUCKETS) {
+            throw new IllegalArgumentException("length must be in the range of [0, " + PATH_BUCKETS + ")");
+        }
+        return pathLengths[length];
+    }
+
+    public double meanPathLength() {
+        return lookups == 0 ? 0 : totalPathLength / (double) lookups;
+    }
+
+    // smallest length such that at least the fraction q of the lookups had a
+    // path no longer, capped at PATH_BUCKETS - 1
+    public int pathLengthPercentile(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("q must be in the range of [0, 1]");
+
+        long target = (long) Math.ceil(q * lookups);
+        long seen = 0;
+        for (int length = 0; length < PATH_BUCKETS - 1; length++) {
+            seen += pathLengths[length];
+            if (seen >= target) {
+                return length;
+            }
+        }
+        return PATH_BUCKETS - 1;
+    }
+
+    // longest path seen, the height of the tallest tree lookups have reached
+    public int maxPathLength() {
+        return maxPathLength;
+    }
+
+    // records these counts as one event of a trial on an n-by-n grid, begun
+    // with event.begin()
+    void commit(UnionFindEvent event, int n) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+
+        event.n = n;
+        event.opens = opens;
+        event.fullQueries = fullQueries;
+        event.percolatesQueries = percolatesQueries;
+        event.unions = unions;
+        event.connectedCalls = connectedCalls;
+        event.finds = finds;
+        event.lookups = lookups;
+        event.meanPathLength = meanPathLength();
+        event.p99PathLength = pathLengthPercentile(0.99);
+        event.maxPathLength = maxPathLength;
+        event.commit();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append("opens = ").append(opens)
+                .append(", isFull = ").append(fullQueries)
+                .append(", percolates = ").append(percolatesQueries).append('\n');
+        s.append("unions = ").append(unions)
+                .append(", connected = ").append(connectedCalls)
+                .append(", finds = ").append(finds).append('\n');
+        s.append("lookups = ").append(lookups)
+                .append(", mean path = ").append(String.format("%.3f", meanPathLength()))
+                .append(", p99 path = ").append(pathLengthPercentile(0.99))
+                .append(", max path = ").append(maxPathLength).append('\n');
+        s.append("path length histogram:");
+        for (int length = 0; length < PATH_BUCKETS; length++) {
+            if (pathLengths[length] != 0) {
+                s.append(' ').append(length).append(length == PATH_BUCKETS - 1 ? "+" : "")
+                        .append(':').append(pathLengths[length]);
+            }
+        }
+        return s.toString();
+    }
+
+    // test client: UnionFindStats [n]
+    public static void main(String[] args) {
+        // the flag is read once, when Percolation is first used
+        System.setProperty("percolation.instrument", "true");
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+
+        // open the even rows of the first column, then the odd rows: under
+        // quick-union each odd site links the chain so far under the next
+        // even site, so the tree grows by one level per two rows
+        Percolation percolation = new Percolation(n, "MyQuickUnionUF", "BooleanSiteSet", false);
+        for (int row = 2; row <= n; row += 2) {
+            percolation.open(row, 1);
+        }
+        for (int row = 1; row <= n; row += 2) {
+            percolation.open(row, 1);
+        }
+        boolean percolates = percolation.percolates();
+        boolean full = percolation.isFull(n, 1);
+
+        UnionFindStats stats = percolation.instrumentation();
+        StdOut.println(stats);
+
+        assert percolates && full;
+        assert stats.opens() == n;
+        assert stats.percolatesQueries() == 1 && stats.fullQueries() == 1;
+        // top link and one link up per row, plus the bottom link of the last row
+        assert stats.unions() == n + 1;
+        assert stats.connectedCalls() == 2;
+        assert stats.lookups() == 2 * (stats.unions() + stats.connectedCalls());
+        assert stats.maxPathLength() >= n / 2;
+        StdOut.println("--- Test Pass ---");
+
+        // counters start over with the grid
+        percolation.reset();
+        assert percolation.instrumentation().lookups() == 0;
+        StdOut.println("--- Test Pass ---");
+    }
+}
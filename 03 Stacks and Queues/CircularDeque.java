@@ -0,0 +1,258 @@
+/* *****************************************************************************
+ *  Deque over a circular array instead of linked nodes.
+ *
+ *  The items live in one array whose length is a power of two, so an index
+ *  wraps with a mask. The array doubles when full and halves when a quarter
+ *  full, so a deque whose size stays within a factor of four of its peak
+ *  allocates nothing, and iteration walks the array in order.
+ *
+ *  Deque stays a linked list: the assignment requires worst-case constant
+ *  time per operation, while here it is amortized.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class CircularDeque<Item> implements Iterable<Item> {
+    private static final int MIN_CAPACITY = 8;
+
+    private Item[] items;
+    // index of the first item
+    private int head;
+    private int itemSize;
+
+    private class CircularDequeIterator implements Iterator<Item> {
+        private int current;
+
+        @Override
+        public boolean hasNext() {
+            return current < itemSize;
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return items[(head + current++) & (items.length - 1)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void print() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Current elements: ");
+
+        for (Item i : this) {
+            sb.append(i.toString());
+            sb.append(" ");
+        }
+
+        sb.deleteCharAt(sb.length() - 1);
+
+        StdOut.println(sb.toString());
+    }
+
+    // construct an empty deque
+    public CircularDeque() {
+        items = newArray(MIN_CAPACITY);
+        head = 0;
+        itemSize = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Item> Item[] newArray(int capacity) {
+        return (Item[]) new Object[capacity];
+    }
+
+    // moves the items to the front of a new array of the given power-of-two length
+    private void resize(int capacity) {
+        Item[] resized = newArray(capacity);
+        int mask = items.length - 1;
+
+        for (int i = 0; i < itemSize; i++) {
+            resized[i] = items[(head + i) & mask];
+        }
+
+        items = resized;
+        head = 0;
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the deque
+    public int size() {
+        return itemSize;
+    }
+
+    // add the item to the front
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("item cannot be null");
+        }
+
+        if (itemSize == items.length) {
+            resize(items.length * 2);
+        }
+
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        itemSize++;
+    }
+
+    // add the item to the back
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("item cannot be null");
+        }
+
+        if (itemSize == items.length) {
+            resize(items.length * 2);
+        }
+
+        items[(head + itemSize) & (items.length - 1)] = item;
+        itemSize++;
+    }
+
+    // remove and return the item from the front
+    public Item removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        Item item = items[head];
+        items[head] = null;
+        head = (head + 1) & (items.length - 1);
+        itemSize--;
+
+        shrinkIfSparse();
+        return item;
+    }
+
+    // remove and return the item from the back
+    public Item removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        int last = (head + itemSize - 1) & (items.length - 1);
+        Item item = items[last];
+        items[last] = null;
+        itemSize--;
+
+        shrinkIfSparse();
+        return item;
+    }
+
+    private void shrinkIfSparse() {
+        if (items.length > MIN_CAPACITY && itemSize <= items.length / 4) {
+            resize(items.length / 2);
+        }
+    }
+
+    private int capacity() {
+        return items.length;
+    }
+
+    // return an iterator over items in order from front to back
+    public Iterator<Item> iterator() {
+        return new CircularDequeIterator();
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        CircularDeque<Integer> deque = new CircularDeque<>();
+        Integer element;
+
+        // Test 1
+        StdOut.println("--- Test 1: Constructor ---");
+        assert deque.isEmpty();
+        assert deque.size() == 0;
+        deque.print();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 2
+        StdOut.println("--- Test 2: addFirst ---");
+        deque.addFirst(1);  // 1
+        assert deque.size() == 1;
+        assert !deque.isEmpty();
+        deque.print();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 3
+        StdOut.println("--- Test 3: addLast ---");
+        deque.addLast(2);  // 1 2
+        assert deque.size() == 2;
+        assert !deque.isEmpty();
+        deque.print();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 4
+        StdOut.println("--- Test 4: iterator ---");
+        Iterator<Integer> iterator = deque.iterator();
+
+        element = iterator.next();
+        assert element == 1;
+        assert iterator.hasNext();
+
+        element = iterator.next();
+        assert element == 2;
+        assert !iterator.hasNext();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 5
+        StdOut.println("--- Test 5: removeFirst ---");
+        element = deque.removeFirst(); // 1
+        assert deque.size() == 1;
+        assert element == 1 : "element is now " + element + ", expected 1";
+        deque.print();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 6
+        StdOut.println("--- Test 6: removeLast ---");
+        element = deque.removeLast(); // (empty)
+        assert deque.isEmpty();
+        assert element == 2 : "element is now " + element + ", expected 2";
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 7
+        StdOut.println("--- Test 7: wrap around, grow and shrink against Deque ---");
+        Deque<Integer> expected = new Deque<>();
+        StdRandom.setSeed(42);
+        for (int i = 0; i < 100000; i++) {
+            // mostly adds for the first half, mostly removes for the second
+            boolean remove = StdRandom.uniformInt(5) < (i < 50000 ? 1 : 3);
+            int op = StdRandom.uniformInt(2);
+            if (remove && !expected.isEmpty()) {
+                if (op == 0) {
+                    assert deque.removeFirst().equals(expected.removeFirst());
+                } else {
+                    assert deque.removeLast().equals(expected.removeLast());
+                }
+            } else if (op == 0) {
+                deque.addFirst(i);
+                expected.addFirst(i);
+            } else {
+                deque.addLast(i);
+                expected.addLast(i);
+            }
+            assert deque.size() == expected.size();
+        }
+        Iterator<Integer> actual = deque.iterator();
+        for (Integer value : expected) {
+            assert actual.next().equals(value);
+        }
+        assert !actual.hasNext();
+        StdOut.println("size = " + deque.size() + ", capacity = " + deque.capacity());
+        StdOut.println("--- Test Pass ---\n");
+    }
+}
@@ -0,0 +1,79 @@
+/* *****************************************************************************
+ *  A pseudo-random permutation of [0, size) computed one index at a time in
+ *  O(1) memory, used by the lazy iterators of the randomized queues.
+ *
+ *  A balanced Feistel network with random round keys permutes [0, 4^h) for
+ *  the smallest 4^h >= size, and indexes past the end are cycle-walked,
+ *  permuted again until they land in range. Position p starts the walk at
+ *  (p + offset) % size for a random offset, so the index at any one position
+ *  is exactly uniform even where the few Feistel permutations of a tiny
+ *  domain are not.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdRandom;
+
+class LazyPermutation {
+    private static final int ROUNDS = 8;
+
+    private final int size;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] keys;
+    private final int offset;
+
+    LazyPermutation(int size) {
+        this.size = size;
+
+        int bits = size <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(size - 1);
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        this.keys = new long[ROUNDS];
+
+        for (int i = 0; i < ROUNDS; i++) {
+            keys[i] = StdRandom.uniformLong(Long.MAX_VALUE);
+        }
+        this.offset = size == 0 ? 0 : StdRandom.uniformInt(size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // the index at the given position, in [0, size)
+    int get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IllegalArgumentException("position must be in the range of [0, size)");
+        }
+
+        // the cycle through the start returns to it, so this ends
+        long index = (long) position + offset;
+        if (index >= size) {
+            index -= size;
+        }
+        do {
+            index = permute(index);
+        } while (index >= size);
+
+        return (int) index;
+    }
+
+    private long permute(long x) {
+        long left = x >>> halfBits;
+        long right = x & halfMask;
+
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ mix(right, keys[i]);
+            left = right;
+            right = next;
+        }
+
+        return (left << halfBits) | right;
+    }
+
+    private long mix(long value, long key) {
+        long h = (value + key) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        h ^= h >>> 32;
+        return h & halfMask;
+    }
+}
@@ -0,0 +1,230 @@
+/* *****************************************************************************
+ *  CircularDeque specialized to long: the values are stored in a long[]
+ *  ring buffer, so nothing is boxed on the way in or out. Iterate with the
+ *  PrimitiveIterator.OfLong from iterator() or with forEach(LongConsumer).
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+public class LongDeque {
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] values;
+    // index of the first value
+    private int head;
+    private int valueSize;
+
+    private class LongDequeIterator implements PrimitiveIterator.OfLong {
+        private int current;
+
+        @Override
+        public boolean hasNext() {
+            return current < valueSize;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return values[(head + current++) & (values.length - 1)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void print() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Current elements: ");
+
+        forEach(i -> {
+            sb.append(i);
+            sb.append(" ");
+        });
+
+        sb.deleteCharAt(sb.length() - 1);
+
+        StdOut.println(sb.toString());
+    }
+
+    // construct an empty deque
+    public LongDeque() {
+        values = new long[MIN_CAPACITY];
+        head = 0;
+        valueSize = 0;
+    }
+
+    // moves the values to the front of a new array of the given power-of-two length
+    private void resize(int capacity) {
+        long[] resized = new long[capacity];
+        int mask = values.length - 1;
+
+        for (int i = 0; i < valueSize; i++) {
+            resized[i] = values[(head + i) & mask];
+        }
+
+        values = resized;
+        head = 0;
+    }
+
+    // is the deque empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of values on the deque
+    public int size() {
+        return valueSize;
+    }
+
+    // add the value to the front
+    public void addFirst(long value) {
+        if (valueSize == values.length) {
+            resize(values.length * 2);
+        }
+
+        head = (head - 1) & (values.length - 1);
+        values[head] = value;
+        valueSize++;
+    }
+
+    // add the value to the back
+    public void addLast(long value) {
+        if (valueSize == values.length) {
+            resize(values.length * 2);
+        }
+
+        values[(head + valueSize) & (values.length - 1)] = value;
+        valueSize++;
+    }
+
+    // remove and return the value from the front
+    public long removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        long value = values[head];
+        head = (head + 1) & (values.length - 1);
+        valueSize--;
+
+        shrinkIfSparse();
+        return value;
+    }
+
+    // remove and return the value from the back
+    public long removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        long value = values[(head + valueSize - 1) & (values.length - 1)];
+        valueSize--;
+
+        shrinkIfSparse();
+        return value;
+    }
+
+    private void shrinkIfSparse() {
+        if (values.length > MIN_CAPACITY && valueSize <= values.length / 4) {
+            resize(values.length / 2);
+        }
+    }
+
+    // return an iterator over values in order from front to back
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongDequeIterator();
+    }
+
+    // performs the action on each value in order from front to back
+    public void forEach(LongConsumer action) {
+        int mask = values.length - 1;
+        for (int i = 0; i < valueSize; i++) {
+            action.accept(values[(head + i) & mask]);
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        LongDeque deque = new LongDeque();
+        long element;
+
+        // Test 1
+        StdOut.println("--- Test 1: Constructor ---");
+        assert deque.isEmpty();
+        assert deque.size() == 0;
+        deque.print();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 2
+        StdOut.println("--- Test 2: addFirst and addLast ---");
+        deque.addFirst(1);  // 1
+        deque.addLast(2);   // 1 2
+        assert deque.size() == 2;
+        deque.print();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 3
+        StdOut.println("--- Test 3: iterator ---");
+        PrimitiveIterator.OfLong iterator = deque.iterator();
+        assert iterator.nextLong() == 1;
+        assert iterator.nextLong() == 2;
+        assert !iterator.hasNext();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 4
+        StdOut.println("--- Test 4: removeFirst and removeLast ---");
+        element = deque.removeFirst(); // 1
+        assert element == 1 : "element is now " + element + ", expected 1";
+        element = deque.removeLast(); // (empty)
+        assert element == 2 : "element is now " + element + ", expected 2";
+        assert deque.isEmpty();
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 5
+        StdOut.println("--- Test 5: wrap around, grow and shrink against Deque ---");
+        Deque<Long> expected = new Deque<>();
+        StdRandom.setSeed(42);
+        for (int i = 0; i < 100000; i++) {
+            // mostly adds for the first half, mostly removes for the second
+            boolean remove = StdRandom.uniformInt(5) < (i < 50000 ? 1 : 3);
+            int op = StdRandom.uniformInt(2);
+            // values past the int range, like nanosecond timestamps
+            long value = 1_000_000_000_000L + i;
+            if (remove && !expected.isEmpty()) {
+                if (op == 0) {
+                    assert deque.removeFirst() == expected.removeFirst();
+                } else {
+                    assert deque.removeLast() == expected.removeLast();
+                }
+            } else if (op == 0) {
+                deque.addFirst(value);
+                expected.addFirst(value);
+            } else {
+                deque.addLast(value);
+                expected.addLast(value);
+            }
+            assert deque.size() == expected.size();
+        }
+        PrimitiveIterator.OfLong actual = deque.iterator();
+        for (long value : expected) {
+            assert actual.nextLong() == value;
+        }
+        assert !actual.hasNext();
+        long[] sum = new long[1];
+        deque.forEach(value -> sum[0] += value);
+        long expectedSum = 0;
+        for (long value : expected) {
+            expectedSum += value;
+        }
+        assert sum[0] == expectedSum;
+        StdOut.println("--- Test Pass ---\n");
+    }
+}
@@ -2,7 +2,17 @@ import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
 public class Permutation {
+    // usage: Permutation k [-skip]
+    //   -skip  keeps only k tokens (Li's Algorithm L): the number of tokens to
+    //          pass over before the next replacement is drawn from its
+    //          geometric distribution, so there are O(k log(N / k)) draws,
+    //          and passed-over tokens are skipped as bytes, never decoded
     public static void main(String[] args) {
         if (args.length < 1) {
             throw new IllegalArgumentException();
@@ -10,6 +20,13 @@ public class Permutation {
 
         int k = Integer.parseInt(args[0]);
 
+        if (args.length > 1 && args[1].equals("-skip")) {
+            for (String s : sampleBySkipping(k, new TokenReader(System.in))) {
+                StdOut.println(s);
+            }
+            return;
+        }
+
         // Reservoir sampling: algorithm L
         // see: https://en.wikipedia.org/wiki/Reservoir_sampling
         RandomizedQueue<String> queue = new RandomizedQueue<>();
@@ -34,4 +51,146 @@ public class Permutation {
             StdOut.println(s);
         }
     }
+
+    // k tokens chosen uniformly from the input, in random order, or all of
+    // them if there are fewer
+    private static String[] sampleBySkipping(int k, TokenReader reader) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k < 0");
+        }
+
+        String[] reservoir = new String[k];
+        int size = 0;
+
+        while (size < k) {
+            String token = reader.readToken();
+            if (token == null) {
+                break;
+            }
+            reservoir[size++] = token;
+        }
+
+        if (size == k && k > 0) {
+            // w is distributed as the largest of k uniforms: the reservoir's
+            // threshold in the random-key view of reservoir sampling
+            double w = Math.exp(Math.log(StdRandom.uniformDouble()) / k);
+
+            while (true) {
+                // tokens before the next one whose key beats the threshold
+                double skip = Math.floor(Math.log(StdRandom.uniformDouble()) / Math.log1p(-w));
+                if (reader.skipTokens(skip >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) skip) < skip) {
+                    break;
+                }
+
+                String token = reader.readToken();
+                if (token == null) {
+                    break;
+                }
+                reservoir[StdRandom.uniformInt(k)] = token;
+                w *= Math.exp(Math.log(StdRandom.uniformDouble()) / k);
+            }
+        }
+
+        String[] sample = new String[size];
+        System.arraycopy(reservoir, 0, sample, 0, size);
+        StdRandom.shuffle(sample);
+        return sample;
+    }
+}
+
+// whitespace-separated tokens of a UTF-8 stream, read through one byte
+// buffer; a skipped token is never copied or decoded. Only ASCII whitespace
+// separates tokens
+class TokenReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private byte[] token = new byte[64];
+
+    TokenReader(InputStream in) {
+        this.in = in;
+    }
+
+    // next byte, or -1 at the end of the input
+    private int read() {
+        if (position == limit) {
+            try {
+                limit = in.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    // first byte of the next token, or -1 at the end of the input
+    private int skipWhitespace() {
+        int b = read();
+        while (b != -1 && isWhitespace(b)) {
+            b = read();
+        }
+        return b;
+    }
+
+    // passes over up to count tokens, returns how many there were
+    long skipTokens(long count) {
+        long skipped = 0;
+
+        while (skipped < count) {
+            int b = skipWhitespace();
+            if (b == -1) {
+                break;
+            }
+
+            // scan the rest of the token inside the buffer without a call per byte
+            while (true) {
+                while (position < limit && !isWhitespace(buffer[position] & 0xFF)) {
+                    position++;
+                }
+                if (position < limit) {
+                    break;
+                }
+                b = read();
+                if (b == -1 || isWhitespace(b)) {
+                    break;
+                }
+            }
+            skipped++;
+        }
+
+        return skipped;
+    }
+
+    // the next token, or null at the end of the input
+    String readToken() {
+        int b = skipWhitespace();
+        if (b == -1) {
+            return null;
+        }
+
+        int length = 0;
+        while (b != -1 && !isWhitespace(b)) {
+            if (length == token.length) {
+                byte[] grown = new byte[token.length * 2];
+                System.arraycopy(token, 0, grown, 0, length);
+                token = grown;
+            }
+            token[length++] = (byte) b;
+            b = read();
+        }
+
+        return new String(token, 0, length, StandardCharsets.UTF_8);
+    }
 }
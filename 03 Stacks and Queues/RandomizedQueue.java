@@ -47,6 +47,37 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
     }
 
+    // visits the items in the order of a LazyPermutation, so it holds no
+    // index array
+    private class LazyRandomizedQueueIterator implements Iterator<Item> {
+        private final Item[] items;
+        private final LazyPermutation permutation;
+        private int position;
+
+        public LazyRandomizedQueueIterator(Item[] items, int end) {
+            this.items = items;
+            this.permutation = new LazyPermutation(end);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < permutation.size();
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return items[permutation.get(position++)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private void resize(int capacity) {
         if (size() > capacity) {
             throw new IllegalArgumentException();
@@ -131,11 +162,104 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return items[rand];
     }
 
+    // remove k random items into out[0 .. k): a partial Fisher-Yates shuffle
+    // moves them to the end of the array, which then shrinks at most once
+    public void dequeueMany(int k, Item[] out) {
+        validateMany(k, out);
+        if (k > size()) {
+            throw new NoSuchElementException();
+        }
+
+        for (int i = 0; i < k; i++) {
+            int last = end - 1 - i;
+            int rand = StdRandom.uniformInt(last + 1);
+            Item temp = items[rand];
+            items[rand] = items[last];
+            items[last] = temp;
+            out[i] = temp;
+        }
+
+        for (int i = end - k; i < end; i++) {
+            items[i] = null;
+        }
+        end -= k;
+
+        int capacity = items.length;
+        while (end < capacity / 4) {
+            capacity /= 2;
+        }
+        if (capacity != items.length) {
+            resize(capacity);
+        }
+    }
+
+    // put k random items into out[0 .. k) without removing them; with
+    // replacement k may exceed size(), without it the items are distinct and
+    // the swaps of the partial shuffle are undone, so the queue is unchanged
+    public void sampleMany(int k, boolean withReplacement, Item[] out) {
+        validateMany(k, out);
+
+        if (withReplacement) {
+            if (k > 0 && isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            for (int i = 0; i < k; i++) {
+                out[i] = items[StdRandom.uniformInt(end)];
+            }
+            return;
+        }
+
+        if (k > size()) {
+            throw new NoSuchElementException();
+        }
+
+        int[] swaps = new int[k];
+        for (int i = 0; i < k; i++) {
+            int last = end - 1 - i;
+            int rand = StdRandom.uniformInt(last + 1);
+            Item temp = items[rand];
+            items[rand] = items[last];
+            items[last] = temp;
+            out[i] = temp;
+            swaps[i] = rand;
+        }
+
+        for (int i = k - 1; i >= 0; i--) {
+            int last = end - 1 - i;
+            Item temp = items[swaps[i]];
+            items[swaps[i]] = items[last];
+            items[last] = temp;
+        }
+    }
+
+    private Item itemAt(int i) {
+        return items[i];
+    }
+
+    private int capacity() {
+        return items.length;
+    }
+
+    private void validateMany(int k, Item[] out) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k < 0");
+        }
+        if (out == null || out.length < k) {
+            throw new IllegalArgumentException("out must hold k items");
+        }
+    }
+
     // return an independent iterator over items in random order
     public Iterator<Item> iterator() {
         return new RandomizedQueueIterator(items, end);
     }
 
+    // as iterator(), but in O(1) memory: the order is a pseudo-random
+    // permutation computed on the fly rather than a shuffled index array
+    public Iterator<Item> lazyIterator() {
+        return new LazyRandomizedQueueIterator(items, end);
+    }
+
     // unit testing (required)
     public static void main(String[] args) {
         {
@@ -180,10 +304,107 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             for (int i = 0; i < 20; i++) {
                 queue.enqueue(i);
             }
-            assert queue.size() == 10;
+            assert queue.size() == 20;
             assert !queue.isEmpty();
             queue.print();
             StdOut.println("--- Test Pass ---\n");
         }
+        {
+            // Test 6
+            StdOut.println("--- Test 6: lazyIterator visits every item once ---");
+            for (int n = 0; n <= 1000; n += n < 20 ? 1 : 97) {
+                RandomizedQueue<Integer> queue = new RandomizedQueue<>();
+                for (int i = 0; i < n; i++) {
+                    queue.enqueue(i);
+                }
+                boolean[] seen = new boolean[n];
+                int count = 0;
+                for (Iterator<Integer> it = queue.lazyIterator(); it.hasNext(); count++) {
+                    int item = it.next();
+                    assert !seen[item];
+                    seen[item] = true;
+                }
+                assert count == n;
+            }
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 7
+            StdOut.println("--- Test 7: lazyIterator order is close to uniform ---");
+            StdRandom.setSeed(20240101L);
+            int n = 5;
+            int iterators = 50000;
+            RandomizedQueue<Integer> queue = new RandomizedQueue<>();
+            for (int i = 0; i < n; i++) {
+                queue.enqueue(i);
+            }
+            // the ordered pair of the first two items should be each of the
+            // n * (n - 1) pairs about equally often
+            int[][] counts = new int[n][n];
+            for (int k = 0; k < iterators; k++) {
+                Iterator<Integer> it = queue.lazyIterator();
+                counts[it.next()][it.next()]++;
+            }
+            double chiSquare = 0;
+            double expected = (double) iterators / (n * (n - 1));
+            for (int first = 0; first < n; first++) {
+                for (int second = 0; second < n; second++) {
+                    if (first != second) {
+                        double delta = counts[first][second] - expected;
+                        chiSquare += delta * delta / expected;
+                    }
+                }
+            }
+            // 19 degrees of freedom; 45 is far in the tail
+            StdOut.println("chi-square = " + chiSquare);
+            assert chiSquare < 45;
+            StdOut.println("--- Test Pass ---\n");
+        }
+        {
+            RandomizedQueue<Integer> queue = new RandomizedQueue<>();
+            int n = 1000;
+            for (int i = 0; i < n; i++) {
+                queue.enqueue(i);
+            }
+
+            // Test 8
+            StdOut.println("--- Test 8: sampleMany leaves the queue unchanged ---");
+            Integer[] before = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                before[i] = queue.itemAt(i);
+            }
+            Integer[] out = new Integer[2 * n];
+            queue.sampleMany(300, false, out);
+            boolean[] seen = new boolean[n];
+            for (int i = 0; i < 300; i++) {
+                assert !seen[out[i]];
+                seen[out[i]] = true;
+            }
+            for (int i = 0; i < n; i++) {
+                assert queue.itemAt(i).equals(before[i]);
+            }
+            queue.sampleMany(2 * n, true, out);
+            assert queue.size() == n;
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 9
+            StdOut.println("--- Test 9: dequeueMany removes distinct items and shrinks ---");
+            queue.dequeueMany(990, out);
+            assert queue.size() == 10;
+            assert queue.capacity() == 32 : "capacity is " + queue.capacity();
+            seen = new boolean[n];
+            for (int i = 0; i < 990; i++) {
+                assert !seen[out[i]];
+                seen[out[i]] = true;
+            }
+            while (!queue.isEmpty()) {
+                int item = queue.dequeue();
+                assert !seen[item];
+                seen[item] = true;
+            }
+            for (boolean value : seen) {
+                assert value;
+            }
+            StdOut.println("--- Test Pass ---\n");
+        }
     }
-}
\ No newline at end of file
+}
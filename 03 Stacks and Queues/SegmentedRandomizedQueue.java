@@ -0,0 +1,243 @@
+/* *****************************************************************************
+ *  RandomizedQueue over fixed-size chunks instead of one array.
+ *
+ *  Item i lives at chunks[i >> chunkBits][i & chunkMask], so a random index
+ *  is still two array reads. The queue grows by allocating one chunk and
+ *  shrinks by freeing one, never copying items; only the directory of chunk
+ *  references is resized, and it is smaller than the items by the chunk
+ *  size. One empty chunk is kept past the last item, so a queue whose size
+ *  moves back and forth across a chunk boundary does not allocate.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class SegmentedRandomizedQueue<Item> implements Iterable<Item> {
+    private static final int DEFAULT_CHUNK_BITS = 12;
+    private static final int MIN_DIRECTORY = 4;
+
+    private final int chunkBits;
+    private final int chunkMask;
+    private Object[][] chunks;
+    private int chunkCount;
+    private int end;
+
+    // visits the items in the order of a LazyPermutation
+    private class SegmentedRandomizedQueueIterator implements Iterator<Item> {
+        private final LazyPermutation permutation = new LazyPermutation(end);
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+            return position < permutation.size();
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(permutation.get(position++));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // construct an empty randomized queue with chunks of 4096 items
+    public SegmentedRandomizedQueue() {
+        this(DEFAULT_CHUNK_BITS);
+    }
+
+    // construct an empty randomized queue with chunks of 2^chunkBits items
+    public SegmentedRandomizedQueue(int chunkBits) {
+        if (chunkBits < 0 || chunkBits > 30) {
+            throw new IllegalArgumentException("chunkBits must be in the range of [0, 30]");
+        }
+
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+        chunks = new Object[MIN_DIRECTORY][];
+        chunkCount = 0;
+        end = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Item get(int i) {
+        return (Item) chunks[i >>> chunkBits][i & chunkMask];
+    }
+
+    private void set(int i, Object item) {
+        chunks[i >>> chunkBits][i & chunkMask] = item;
+    }
+
+    private void addChunk() {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        chunks[chunkCount++] = new Object[chunkMask + 1];
+    }
+
+    // frees the last chunk once it and the one before it are both empty
+    private void removeSpareChunk() {
+        if (chunkCount < 2 || end > (chunkCount - 2) << chunkBits) {
+            return;
+        }
+
+        chunks[--chunkCount] = null;
+
+        if (chunks.length > MIN_DIRECTORY && chunkCount < chunks.length / 4) {
+            chunks = Arrays.copyOf(chunks, chunks.length / 2);
+        }
+    }
+
+    // is the randomized queue empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the randomized queue
+    public int size() {
+        return end;
+    }
+
+    // add the item
+    public void enqueue(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        if (end == Integer.MAX_VALUE) {
+            throw new IllegalStateException("queue is full");
+        }
+
+        if (end == chunkCount << chunkBits) {
+            addChunk();
+        }
+
+        set(end++, item);
+    }
+
+    // remove and return a random item
+    public Item dequeue() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        int rand = StdRandom.uniformInt(end);
+        Item temp = get(rand);
+        set(rand, get(--end));
+        set(end, null);
+
+        removeSpareChunk();
+
+        return temp;
+    }
+
+    // return a random item (but do not remove it)
+    public Item sample() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return get(StdRandom.uniformInt(end));
+    }
+
+    // return an independent iterator over items in random order
+    public Iterator<Item> iterator() {
+        return new SegmentedRandomizedQueueIterator();
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        {
+            SegmentedRandomizedQueue<Integer> queue = new SegmentedRandomizedQueue<>(3);
+
+            // Test 1
+            StdOut.println("--- Test 1: Constructor ---");
+            assert queue.isEmpty();
+            assert queue.size() == 0;
+            assert queue.chunkCount == 0;
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 2
+            StdOut.println("--- Test 2: Enqueue allocates one chunk at a time ---");
+            for (int i = 0; i < 100; i++) {
+                queue.enqueue(i);
+                assert queue.chunkCount == (i >> 3) + 1;
+            }
+            assert queue.size() == 100;
+            StdOut.println("chunks = " + queue.chunkCount + ", directory = " + queue.chunks.length);
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 3
+            StdOut.println("--- Test 3: Iterator visits every item once ---");
+            boolean[] seen = new boolean[100];
+            for (int item : queue) {
+                assert !seen[item];
+                seen[item] = true;
+            }
+            for (boolean value : seen) {
+                assert value;
+            }
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 4
+            StdOut.println("--- Test 4: Dequeue frees one chunk at a time, keeping a spare ---");
+            seen = new boolean[100];
+            while (!queue.isEmpty()) {
+                int chunks = queue.chunkCount;
+                int item = queue.dequeue();
+                assert !seen[item];
+                seen[item] = true;
+                assert queue.chunkCount == chunks || queue.chunkCount == chunks - 1;
+                // the items fit in all but at most one spare chunk
+                assert queue.size() > (queue.chunkCount - 2) << 3;
+            }
+            assert queue.chunkCount == 1;
+            StdOut.println("--- Test Pass ---\n");
+
+            // Test 5
+            StdOut.println("--- Test 5: Crossing a chunk boundary back and forth does not allocate ---");
+            for (int i = 0; i < 8; i++) {
+                queue.enqueue(i);
+            }
+            int chunks = queue.chunkCount;
+            for (int i = 0; i < 1000; i++) {
+                queue.enqueue(i);
+                queue.dequeue();
+            }
+            assert queue.chunkCount == chunks + 1;
+            StdOut.println("--- Test Pass ---\n");
+        }
+        {
+            // Test 6
+            StdOut.println("--- Test 6: Dequeue is uniform ---");
+            int n = 10;
+            int draws = 100000;
+            int[] counts = new int[n];
+            SegmentedRandomizedQueue<Integer> queue = new SegmentedRandomizedQueue<>(2);
+            for (int k = 0; k < draws; k++) {
+                for (int i = 0; i < n; i++) {
+                    queue.enqueue(i);
+                }
+                counts[queue.dequeue()]++;
+                while (!queue.isEmpty()) {
+                    queue.dequeue();
+                }
+            }
+            double expected = (double) draws / n;
+            double chiSquare = 0;
+            for (int count : counts) {
+                chiSquare += (count - expected) * (count - expected) / expected;
+            }
+            // 9 degrees of freedom; 30 is far in the tail
+            StdOut.println("chi-square = " + chiSquare);
+            assert chiSquare < 30;
+            StdOut.println("--- Test Pass ---\n");
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/* *****************************************************************************
+ *  RandomizedQueue for many threads: the items are split over shards, each
+ *  an array like RandomizedQueue's guarded by its own lock.
+ *
+ *  enqueue() adds to a shard chosen with ThreadLocalRandom, so producers
+ *  rarely meet on a lock. dequeue() and sample() choose a shard with
+ *  probability proportional to its size, then an item of that shard
+ *  uniformly, which makes every item equally likely.
+ *
+ *  Bias: the sizes are read without locks, so while other threads change
+ *  them a shard is weighted by a size up to their concurrent operations
+ *  stale; the item within the shard is then drawn from its actual contents.
+ *  If the sizes shrink between summing them and walking them, the draw
+ *  falls past the last shard and is retried, and a chosen shard that has
+ *  emptied is also retried, so neither case favours particular shards.
+ *  With no concurrent changes the draw is exactly uniform. main() measures
+ *  the deviation while many threads dequeue at once.
+ *
+ *  Cost: choosing a shard reads the volatile size of every shard twice, once
+ *  to sum them and once to walk to the chosen one, so dequeue() and sample()
+ *  take O(shards) reads of cache lines that other threads keep writing.
+ *  Only enqueue() is O(1). Keep the shard count near the number of threads;
+ *  many more shards make every draw slower without reducing contention.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShardedRandomizedQueue<Item> {
+    private static final int DEFAULT_CAPACITY = 2;
+
+    private final Shard[] shards;
+
+    // one lock, one array; size is volatile so other threads can weigh the
+    // shard without taking the lock
+    private static class Shard {
+        private Object[] items = new Object[DEFAULT_CAPACITY];
+        private volatile int size;
+
+        private void resize(int capacity) {
+            Object[] newItems = new Object[capacity];
+
+            for (int i = 0; i < size; i++) {
+                newItems[i] = items[i];
+            }
+
+            items = newItems;
+        }
+
+        synchronized void enqueue(Object item) {
+            if (size == items.length) {
+                resize(items.length * 2);
+            }
+
+            items[size] = item;
+            size = size + 1;
+        }
+
+        // null if the shard emptied since it was chosen
+        synchronized Object dequeue(ThreadLocalRandom random) {
+            if (size == 0) {
+                return null;
+            }
+
+            int rand = random.nextInt(size);
+            int last = size - 1;
+            Object temp = items[rand];
+            items[rand] = items[last];
+            items[last] = null;
+            size = last;
+
+            if (last < items.length / 4) {
+                resize(items.length / 2);
+            }
+
+            return temp;
+        }
+
+        synchronized Object sample(ThreadLocalRandom random) {
+            if (size == 0) {
+                return null;
+            }
+            return items[random.nextInt(size)];
+        }
+    }
+
+    // construct an empty queue with one shard per available processor
+    public ShardedRandomizedQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    // construct an empty queue with the given number of shards
+    public ShardedRandomizedQueue(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount <= 0");
+        }
+
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    // is the queue empty? only a snapshot while other threads use it
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the queue, only a snapshot while other
+    // threads use it
+    public int size() {
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.size;
+        }
+        return total;
+    }
+
+    // add the item
+    public void enqueue(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+
+        shards[ThreadLocalRandom.current().nextInt(shards.length)].enqueue(item);
+    }
+
+    // remove and return a random item, or null if the queue is empty; unlike
+    // RandomizedQueue this does not throw, since another thread may empty
+    // the queue between isEmpty() and the call
+    @SuppressWarnings("unchecked")
+    public Item dequeue() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            Shard shard = chooseShard(random);
+            if (shard == null) {
+                return null;
+            }
+
+            Object item = shard.dequeue(random);
+            if (item != null) {
+                return (Item) item;
+            }
+        }
+    }
+
+    // return a random item (but do not remove it), or null if the queue is empty
+    @SuppressWarnings("unchecked")
+    public Item sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            Shard shard = chooseShard(random);
+            if (shard == null) {
+                return null;
+            }
+
+            Object item = shard.sample(random);
+            if (item != null) {
+                return (Item) item;
+            }
+        }
+    }
+
+    // a shard with probability proportional to its size, or null if all are empty
+    private Shard chooseShard(ThreadLocalRandom random) {
+        while (true) {
+            int total = size();
+            if (total == 0) {
+                return null;
+            }
+
+            int rand = random.nextInt(total);
+            for (Shard shard : shards) {
+                // a size read again here may differ from the one summed above
+                rand -= shard.size;
+                if (rand < 0) {
+                    return shard;
+                }
+            }
+
+            // sizes shrank between the two reads; draw again from fresh sizes
+        }
+    }
+
+    // chi-square of how often each item is dequeued first against uniform
+    private static double singleThreadedChiSquare(int n, int draws) {
+        int[] counts = new int[n];
+
+        for (int k = 0; k < draws; k++) {
+            ShardedRandomizedQueue<Integer> queue = new ShardedRandomizedQueue<>(4);
+            for (int i = 0; i < n; i++) {
+                queue.enqueue(i);
+            }
+            counts[queue.dequeue()]++;
+        }
+
+        double expected = (double) draws / n;
+        double chiSquare = 0;
+        for (int count : counts) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+        }
+        return chiSquare;
+    }
+
+    // fills the queue, lets threads dequeue half of it at once, then returns
+    // the chi-square of the items taken from each shard against the counts
+    // expected of a uniform draw (a hypergeometric split by shard size)
+    private static double concurrentChiSquare(int shardCount, int n, int threads) throws InterruptedException {
+        ShardedRandomizedQueue<Integer> queue = new ShardedRandomizedQueue<>(shardCount);
+        for (int i = 0; i < n; i++) {
+            queue.enqueue(i);
+        }
+
+        int[] initial = new int[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            initial[s] = queue.shards[s].size;
+        }
+
+        int removals = n / 2;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int share = removals / threads + (t < removals % threads ? 1 : 0);
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < share; i++) {
+                    queue.dequeue();
+                }
+                finished.countDown();
+            }).start();
+        }
+        start.countDown();
+        finished.await();
+
+        double chiSquare = 0;
+        for (int s = 0; s < shardCount; s++) {
+            double expected = (double) initial[s] * removals / n;
+            double removed = initial[s] - queue.shards[s].size;
+            // variance of a hypergeometric count
+            double variance = expected * (1 - (double) initial[s] / n) * (n - removals) / (n - 1.0);
+            chiSquare += (removed - expected) * (removed - expected) / variance;
+        }
+        return chiSquare;
+    }
+
+    // unit testing and bias measurement
+    // usage: ShardedRandomizedQueue [threads]
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+
+        // Test 1
+        StdOut.println("--- Test 1: every item dequeued exactly once ---");
+        ShardedRandomizedQueue<Integer> queue = new ShardedRandomizedQueue<>(8);
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            queue.enqueue(i);
+        }
+        assert queue.size() == n;
+        boolean[] seen = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            assert queue.sample() != null;
+            int item = queue.dequeue();
+            assert !seen[item];
+            seen[item] = true;
+        }
+        assert queue.isEmpty();
+        assert queue.dequeue() == null && queue.sample() == null;
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 2
+        StdOut.println("--- Test 2: single-threaded draws are uniform ---");
+        double chiSquare = singleThreadedChiSquare(10, 100000);
+        // 9 degrees of freedom; 30 is far in the tail
+        StdOut.println("chi-square = " + chiSquare + " (9 degrees of freedom)");
+        assert chiSquare < 30;
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 3
+        StdOut.println("--- Test 3: bias with " + threads + " threads dequeuing at once ---");
+        int shardCount = 16;
+        for (int round = 0; round < 5; round++) {
+            chiSquare = concurrentChiSquare(shardCount, 1_000_000, threads);
+            StdOut.println("chi-square = " + chiSquare + " (" + shardCount + " shards, about "
+                    + (shardCount - 1) + " if unbiased)");
+        }
+        StdOut.println("--- Measured ---\n");
+
+        // Test 4
+        StdOut.println("--- Test 4: concurrent enqueue and dequeue lose nothing ---");
+        ShardedRandomizedQueue<Integer> shared = new ShardedRandomizedQueue<>(4);
+        int perThread = 100000;
+        boolean[][] taken = new boolean[threads][perThread];
+        AtomicInteger takenCount = new AtomicInteger();
+        // workers only record failures, an assert there would leave the latch waiting
+        AtomicBoolean duplicate = new AtomicBoolean();
+        AtomicBoolean failed = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        shared.enqueue(thread * perThread + i);
+                        if (ThreadLocalRandom.current().nextBoolean()) {
+                            Integer item = shared.dequeue();
+                            if (item != null) {
+                                synchronized (taken) {
+                                    if (taken[item / perThread][item % perThread]) {
+                                        duplicate.set(true);
+                                    }
+                                    taken[item / perThread][item % perThread] = true;
+                                }
+                                takenCount.incrementAndGet();
+                            }
+                        }
+                    }
+                } catch (RuntimeException | Error e) {
+                    failed.set(true);
+                    throw e;
+                } finally {
+                    finished.countDown();
+                }
+            }).start();
+        }
+        finished.await();
+        assert !failed.get();
+        assert !duplicate.get();
+        int remaining = shared.size();
+        for (Integer item = shared.dequeue(); item != null; item = shared.dequeue()) {
+            assert !taken[item / perThread][item % perThread];
+            taken[item / perThread][item % perThread] = true;
+        }
+        for (boolean[] row : taken) {
+            for (boolean value : row) {
+                assert value;
+            }
+        }
+        assert takenCount.get() + remaining == threads * perThread;
+        StdOut.println("--- Test Pass ---\n");
+    }
+}
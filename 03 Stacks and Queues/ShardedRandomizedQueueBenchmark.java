@@ -0,0 +1,153 @@
+/* *****************************************************************************
+ *  Throughput of ShardedRandomizedQueue against one RandomizedQueue behind a
+ *  lock. Every thread runs the same mix of operations on a shared, prefilled
+ *  queue: half enqueue, 40% dequeue and 10% sample.
+ *
+ *  usage: java ShardedRandomizedQueueBenchmark [threads ...]
+ *                                               (default 1 2 4 8 16 32 64)
+ *         -Dbenchmark.operations=<operations per thread> (default 1000000)
+ *         -Dbenchmark.prefill=<items before the run>     (default 100000)
+ *         -Dbenchmark.shards=<shards>                    (default 1 per processor)
+ *         -Dbenchmark.iterations=<measured runs>         (default 3)
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ShardedRandomizedQueueBenchmark {
+    private static final String[] QUEUES = {"ShardedRandomizedQueue", "LockedRandomizedQueue"};
+    private static final int[] DEFAULT_THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    private static final int OPERATIONS = Integer.getInteger("benchmark.operations", 1_000_000);
+    private static final int PREFILL = Integer.getInteger("benchmark.prefill", 100_000);
+    private static final int SHARDS = Integer.getInteger("benchmark.shards", Runtime.getRuntime().availableProcessors());
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 3);
+    private static final int WARMUP_ITERATIONS = 1;
+
+    // dequeue and sample return null when the queue is empty
+    private interface SharedQueue {
+        void enqueue(Integer item);
+
+        Integer dequeue();
+
+        Integer sample();
+    }
+
+    private static class ShardedQueue implements SharedQueue {
+        private final ShardedRandomizedQueue<Integer> queue = new ShardedRandomizedQueue<>(SHARDS);
+
+        public void enqueue(Integer item) {
+            queue.enqueue(item);
+        }
+
+        public Integer dequeue() {
+            return queue.dequeue();
+        }
+
+        public Integer sample() {
+            return queue.sample();
+        }
+    }
+
+    private static class LockedQueue implements SharedQueue {
+        private final RandomizedQueue<Integer> queue = new RandomizedQueue<>();
+
+        public synchronized void enqueue(Integer item) {
+            queue.enqueue(item);
+        }
+
+        public synchronized Integer dequeue() {
+            return queue.isEmpty() ? null : queue.dequeue();
+        }
+
+        public synchronized Integer sample() {
+            return queue.isEmpty() ? null : queue.sample();
+        }
+    }
+
+    private static SharedQueue newQueue(String name) {
+        switch (name) {
+            case "ShardedRandomizedQueue":
+                return new ShardedQueue();
+            case "LockedRandomizedQueue":
+                return new LockedQueue();
+            default:
+                throw new IllegalArgumentException("ShardedRandomizedQueueBenchmark: Unrecognized queue");
+        }
+    }
+
+    // nanoseconds for every thread to finish its operations
+    private static long run(String name, int threads) throws InterruptedException {
+        SharedQueue queue = newQueue(name);
+        Integer item = 42;
+        for (int i = 0; i < PREFILL; i++) {
+            queue.enqueue(item);
+        }
+
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int i = 0; i < OPERATIONS; i++) {
+                    int op = random.nextInt(10);
+                    if (op < 5) {
+                        queue.enqueue(item);
+                    } else if (op < 9) {
+                        queue.dequeue();
+                    } else {
+                        queue.sample();
+                    }
+                }
+                finished.countDown();
+            }).start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        finished.await();
+        return System.nanoTime() - begin;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = DEFAULT_THREADS;
+
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        StdOut.println("shards = " + SHARDS);
+        StdOut.printf("%-24s %7s %14s%n", "queue", "threads", "ops/s");
+
+        for (int threads : threadCounts) {
+            for (String name : QUEUES) {
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    run(name, threads);
+                }
+
+                long nanos = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    nanos += run(name, threads);
+                }
+
+                StdOut.printf("%-24s %7d %14.0f%n", name, threads,
+                        (double) OPERATIONS * threads * ITERATIONS / (nanos / 1e9));
+            }
+        }
+    }
+}
@@ -0,0 +1,518 @@
+/* *****************************************************************************
+ *  RandomizedQueue whose items carry weights: sample() and dequeue() pick an
+ *  item with probability proportional to its weight.
+ *
+ *  The entries are kept densely in [0, size) as in RandomizedQueue, and a
+ *  Fenwick tree over the same positions holds prefix sums of the weights.
+ *  A weighted pick descends the tree in O(log n); dequeue() moves the last
+ *  entry into the hole and fixes the two positions, and updateWeight()
+ *  adjusts one, each in O(log n). enqueue() returns the entry as a handle
+ *  for updateWeight() and remove().
+ *
+ *  The tree is rebuilt in O(n) when the array resizes and after n weight
+ *  changes, so rounding errors in the sums cannot build up.
+ *
+ *  freeze() builds an alias table (Vose) over the current entries for O(1)
+ *  weighted samples from a snapshot that no longer changes.
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class WeightedRandomizedQueue<Item> implements Iterable<Item> {
+    private static final int DEFAULT_CAPACITY = 2;
+
+    private Entry<Item>[] entries;
+    // tree[i], 1-based, is the sum of the weights at positions (i - lowbit(i), i]
+    private double[] tree;
+    private int end;
+    private double totalWeight;
+    // weight changes since the tree was last rebuilt
+    private int updates;
+
+    // an item with its weight and current position, valid until it leaves
+    public static class Entry<Item> {
+        private final Item item;
+        private double weight;
+        private int index;
+
+        private Entry(Item item, double weight, int index) {
+            this.item = item;
+            this.weight = weight;
+            this.index = index;
+        }
+
+        public Item item() {
+            return item;
+        }
+
+        public double weight() {
+            return weight;
+        }
+    }
+
+    // a fixed weighted distribution over the entries at the time of freeze(),
+    // sampled in O(1): column i is picked uniformly, then kept with
+    // probability probability[i] or replaced by its alias
+    public static class AliasTable<Item> {
+        private final Object[] items;
+        private final double[] probability;
+        private final int[] alias;
+
+        private AliasTable(Object[] items, double[] weights, double totalWeight) {
+            int n = items.length;
+            this.items = items;
+            this.probability = new double[n];
+            this.alias = new int[n];
+
+            // scaled weights, split into columns under and over the mean
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallSize = 0;
+            int largeSize = 0;
+
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / totalWeight;
+                if (scaled[i] < 1) {
+                    small[smallSize++] = i;
+                } else {
+                    large[largeSize++] = i;
+                }
+            }
+
+            // fill each small column up to 1 from a large one
+            while (smallSize > 0 && largeSize > 0) {
+                int less = small[--smallSize];
+                int more = large[--largeSize];
+
+                probability[less] = scaled[less];
+                alias[less] = more;
+
+                scaled[more] = (scaled[more] + scaled[less]) - 1;
+                if (scaled[more] < 1) {
+                    small[smallSize++] = more;
+                } else {
+                    large[largeSize++] = more;
+                }
+            }
+
+            // what is left is 1 up to rounding
+            while (largeSize > 0) {
+                probability[large[--largeSize]] = 1;
+            }
+            while (smallSize > 0) {
+                probability[small[--smallSize]] = 1;
+            }
+        }
+
+        public int size() {
+            return items.length;
+        }
+
+        // return a random item, with probability proportional to its weight
+        @SuppressWarnings("unchecked")
+        public Item sample() {
+            int column = StdRandom.uniformInt(items.length);
+            if (StdRandom.uniformDouble() < probability[column]) {
+                return (Item) items[column];
+            }
+            return (Item) items[alias[column]];
+        }
+    }
+
+    // visits the items in uniformly random order, ignoring the weights
+    private class WeightedRandomizedQueueIterator implements Iterator<Item> {
+        private final LazyPermutation permutation = new LazyPermutation(end);
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+            return position < permutation.size();
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return entries[permutation.get(position++)].item;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // construct an empty weighted randomized queue
+    public WeightedRandomizedQueue() {
+        entries = newArray(DEFAULT_CAPACITY);
+        tree = new double[DEFAULT_CAPACITY + 1];
+        end = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Item> Entry<Item>[] newArray(int capacity) {
+        return (Entry<Item>[]) new Entry<?>[capacity];
+    }
+
+    private void resize(int capacity) {
+        Entry<Item>[] newEntries = newArray(capacity);
+
+        for (int i = 0; i < end; i++) {
+            newEntries[i] = entries[i];
+        }
+
+        entries = newEntries;
+        tree = new double[capacity + 1];
+        rebuild();
+    }
+
+    // recomputes the tree and total from the weights in O(n)
+    private void rebuild() {
+        Arrays.fill(tree, 0);
+        totalWeight = 0;
+
+        for (int i = 1; i < tree.length; i++) {
+            if (i <= end) {
+                tree[i] += entries[i - 1].weight;
+                totalWeight += entries[i - 1].weight;
+            }
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+
+        updates = 0;
+    }
+
+    // adds delta to the weight at position index in the tree
+    private void add(int index, double delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+        totalWeight += delta;
+        updates++;
+    }
+
+    // called once an operation has finished changing weights
+    private void rebuildIfDrifted() {
+        if (updates > tree.length) {
+            rebuild();
+        }
+    }
+
+    // sum of the weights at positions [0, index) as the tree holds it
+    private double prefixSum(int index) {
+        double sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // position of the first entry whose prefix sum of weights exceeds target;
+    // end if the tree sums to no more than target
+    private int search(double target) {
+        int position = 0;
+
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= target) {
+                target -= tree[next];
+                position = next;
+            }
+        }
+
+        return position;
+    }
+
+    // the target is scaled by the tree's own sum, so the descent stays below
+    // end; only rounding left in the sums by updates can still land it on an
+    // entry of weight 0 or on end, or misstate the total, and a rebuild
+    // clears that and draws again
+    private int pick() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+
+        while (true) {
+            if (!(totalWeight > 0)) {
+                if (updates == 0) {
+                    throw new IllegalStateException("total weight is 0");
+                }
+                rebuild();
+                continue;
+            }
+
+            double total = prefixSum(end);
+            if (total > 0) {
+                int position = search(StdRandom.uniformDouble() * total);
+                if (position < end && entries[position].weight > 0) {
+                    return position;
+                }
+            }
+            if (updates > 0) {
+                rebuild();
+            }
+        }
+    }
+
+    private static void validateWeight(double weight) {
+        if (!(weight >= 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("weight must be finite and >= 0");
+        }
+    }
+
+    // is the queue empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the queue
+    public int size() {
+        return end;
+    }
+
+    // sum of the weights of the items
+    public double totalWeight() {
+        return totalWeight;
+    }
+
+    // add the item with the given weight, return its entry
+    public Entry<Item> enqueue(Item item, double weight) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        validateWeight(weight);
+
+        if (size() == entries.length) {
+            resize(entries.length * 2);
+        }
+
+        Entry<Item> entry = new Entry<>(item, weight, end);
+        entries[end++] = entry;
+        add(entry.index, weight);
+        rebuildIfDrifted();
+        return entry;
+    }
+
+    // change the weight of an entry still on the queue
+    public void updateWeight(Entry<Item> entry, double weight) {
+        validateEntry(entry);
+        validateWeight(weight);
+
+        add(entry.index, weight - entry.weight);
+        entry.weight = weight;
+        rebuildIfDrifted();
+    }
+
+    // remove the entry, return its item
+    public Item remove(Entry<Item> entry) {
+        validateEntry(entry);
+        return removeAt(entry.index);
+    }
+
+    // remove and return a random item, with probability proportional to its weight
+    public Item dequeue() {
+        return removeAt(pick());
+    }
+
+    // return a random item, with probability proportional to its weight
+    // (but do not remove it)
+    public Item sample() {
+        return entries[pick()].item;
+    }
+
+    // a fixed table of the current items and weights for O(1) samples
+    public AliasTable<Item> freeze() {
+        if (!(totalWeight > 0)) {
+            throw new IllegalStateException("total weight is 0");
+        }
+
+        Object[] items = new Object[end];
+        double[] weights = new double[end];
+        double total = 0;
+        for (int i = 0; i < end; i++) {
+            items[i] = entries[i].item;
+            weights[i] = entries[i].weight;
+            total += weights[i];
+        }
+
+        return new AliasTable<>(items, weights, total);
+    }
+
+    // return an independent iterator over items in uniformly random order
+    public Iterator<Item> iterator() {
+        return new WeightedRandomizedQueueIterator();
+    }
+
+    // moves the last entry into position index
+    private Item removeAt(int index) {
+        Entry<Item> removed = entries[index];
+        Entry<Item> last = entries[--end];
+
+        add(index, last.weight - removed.weight);
+        add(end, -last.weight);
+
+        entries[index] = last;
+        last.index = index;
+        entries[end] = null;
+        removed.index = -1;
+
+        if (end < entries.length / 4) {
+            resize(entries.length / 2);
+        } else {
+            rebuildIfDrifted();
+        }
+
+        return removed.item;
+    }
+
+    private void validateEntry(Entry<Item> entry) {
+        if (entry == null || entry.index < 0 || entry.index >= end || entries[entry.index] != entry) {
+            throw new IllegalArgumentException("entry is not on this queue");
+        }
+    }
+
+    // chi-square of the sampled counts against the weights
+    private static double chiSquare(int[] counts, double[] weights, int draws) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        double chiSquare = 0;
+        for (int i = 0; i < counts.length; i++) {
+            double expected = draws * weights[i] / total;
+            if (expected > 0) {
+                chiSquare += (counts[i] - expected) * (counts[i] - expected) / expected;
+            } else {
+                assert counts[i] == 0 : "item " + i + " has weight 0 but was drawn";
+            }
+        }
+        return chiSquare;
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        int n = 8;
+        int draws = 200000;
+        double[] weights = {1, 2, 3, 4, 0, 6, 7, 8};
+
+        WeightedRandomizedQueue<Integer> queue = new WeightedRandomizedQueue<>();
+        Entry<Integer>[] handles = newArray(n);
+
+        // Test 1
+        StdOut.println("--- Test 1: Enqueue ---");
+        assert queue.isEmpty();
+        for (int i = 0; i < n; i++) {
+            handles[i] = queue.enqueue(i, weights[i]);
+        }
+        assert queue.size() == n;
+        assert queue.totalWeight() == 31;
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 2
+        StdOut.println("--- Test 2: sample() follows the weights ---");
+        int[] counts = new int[n];
+        for (int k = 0; k < draws; k++) {
+            counts[queue.sample()]++;
+        }
+        double chiSquare = chiSquare(counts, weights, draws);
+        // 6 degrees of freedom; 25 is far in the tail
+        StdOut.println("chi-square = " + chiSquare);
+        assert chiSquare < 25;
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 3
+        StdOut.println("--- Test 3: updateWeight ---");
+        queue.updateWeight(handles[0], 10);
+        queue.updateWeight(handles[7], 0);
+        weights[0] = 10;
+        weights[7] = 0;
+        counts = new int[n];
+        for (int k = 0; k < draws; k++) {
+            counts[queue.sample()]++;
+        }
+        chiSquare = chiSquare(counts, weights, draws);
+        StdOut.println("chi-square = " + chiSquare);
+        assert chiSquare < 25;
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 4
+        StdOut.println("--- Test 4: freeze() alias table follows the weights ---");
+        AliasTable<Integer> table = queue.freeze();
+        counts = new int[n];
+        for (int k = 0; k < draws; k++) {
+            counts[table.sample()]++;
+        }
+        chiSquare = chiSquare(counts, weights, draws);
+        StdOut.println("chi-square = " + chiSquare);
+        assert chiSquare < 25;
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 5
+        StdOut.println("--- Test 5: remove and dequeue keep handles valid ---");
+        assert queue.remove(handles[2]) == 2;
+        weights[2] = 0;
+        // the entry moved into the hole is still reachable through its handle
+        queue.updateWeight(handles[7], 8);
+        weights[7] = 8;
+        counts = new int[n];
+        for (int k = 0; k < draws; k++) {
+            counts[queue.sample()]++;
+        }
+        chiSquare = chiSquare(counts, weights, draws);
+        StdOut.println("chi-square = " + chiSquare);
+        assert chiSquare < 25;
+        boolean[] seen = new boolean[n];
+        seen[2] = true;
+        while (queue.totalWeight() > 0) {
+            int item = queue.dequeue();
+            assert !seen[item] && weights[item] > 0;
+            seen[item] = true;
+        }
+        // only the weight-0 item is left
+        assert queue.size() == 1 && !seen[4];
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 6
+        StdOut.println("--- Test 6: many changes keep the sums exact enough ---");
+        WeightedRandomizedQueue<Integer> churn = new WeightedRandomizedQueue<>();
+        for (int i = 0; i < 100000; i++) {
+            churn.enqueue(i, StdRandom.uniformDouble());
+            if (i % 3 == 0) {
+                churn.dequeue();
+            }
+        }
+        double sum = 0;
+        for (int i = 0; i < churn.size(); i++) {
+            sum += churn.entries[i].weight;
+        }
+        StdOut.println("size = " + churn.size() + ", total = " + churn.totalWeight() + ", exact = " + sum);
+        assert Math.abs(churn.totalWeight() - sum) < 1e-6 * sum;
+        StdOut.println("--- Test Pass ---\n");
+
+        // Test 7
+        StdOut.println("--- Test 7: weights changed to 0 are never drawn ---");
+        WeightedRandomizedQueue<Integer> zeroed = new WeightedRandomizedQueue<>();
+        Entry<Integer>[] zeroedHandles = newArray(1000);
+        for (int i = 0; i < zeroedHandles.length; i++) {
+            zeroedHandles[i] = zeroed.enqueue(i, StdRandom.uniformDouble());
+        }
+        for (int i = 0; i < zeroedHandles.length; i++) {
+            zeroed.updateWeight(zeroedHandles[i], 1e6 * StdRandom.uniformDouble());
+            zeroed.updateWeight(zeroedHandles[i], i == 500 ? 1e-9 : 0);
+        }
+        for (int k = 0; k < draws; k++) {
+            assert zeroed.sample() == 500;
+        }
+        StdOut.println("--- Test Pass ---\n");
+    }
+}
@@ -0,0 +1,195 @@
+/* *****************************************************************************
+ *  Compares WorkStealingDeque with ConcurrentLinkedDeque and with a Deque
+ *  behind a lock, used as a scheduler's per-worker queue: one owner adds
+ *  tasks at the back in bursts and takes some of them back, while thieves
+ *  take from the front until every task has been taken once.
+ *
+ *  Reports the tasks per second through the queue and the share taken by
+ *  thieves, for each number of thieves.
+ *
+ *  usage: java WorkStealingBenchmark [thieves ...]       (default 0 1 3)
+ *         -Dbenchmark.tasks=<tasks per run>              (default 4000000)
+ *         -Dbenchmark.iterations=<measured runs>         (default 3)
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WorkStealingBenchmark {
+    private static final String[] QUEUES = {"WorkStealingDeque", "ConcurrentLinkedDeque", "LockedDeque"};
+    private static final int[] DEFAULT_THIEVES = {0, 1, 3};
+
+    private static final int TASKS = Integer.getInteger("benchmark.tasks", 4_000_000);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 3);
+    private static final int WARMUP_ITERATIONS = 1;
+    // the owner adds up to MAX_BURST tasks, then takes back half as many
+    private static final int MAX_BURST = 1024;
+
+    // the three operations a work-stealing scheduler needs; take and steal
+    // return null when the queue is empty
+    private interface WorkQueue {
+        void add(Integer task);
+
+        Integer take();
+
+        Integer steal();
+    }
+
+    private static class WorkStealingWorkQueue implements WorkQueue {
+        private final WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+
+        public void add(Integer task) {
+            deque.addLast(task);
+        }
+
+        public Integer take() {
+            return deque.removeLast();
+        }
+
+        public Integer steal() {
+            return deque.stealFirst();
+        }
+    }
+
+    private static class ConcurrentLinkedWorkQueue implements WorkQueue {
+        private final ConcurrentLinkedDeque<Integer> deque = new ConcurrentLinkedDeque<>();
+
+        public void add(Integer task) {
+            deque.addLast(task);
+        }
+
+        public Integer take() {
+            return deque.pollLast();
+        }
+
+        public Integer steal() {
+            return deque.pollFirst();
+        }
+    }
+
+    private static class LockedWorkQueue implements WorkQueue {
+        private final Deque<Integer> deque = new Deque<>();
+
+        public synchronized void add(Integer task) {
+            deque.addLast(task);
+        }
+
+        public synchronized Integer take() {
+            return deque.isEmpty() ? null : deque.removeLast();
+        }
+
+        public synchronized Integer steal() {
+            return deque.isEmpty() ? null : deque.removeFirst();
+        }
+    }
+
+    private static WorkQueue newQueue(String name) {
+        switch (name) {
+            case "WorkStealingDeque":
+                return new WorkStealingWorkQueue();
+            case "ConcurrentLinkedDeque":
+                return new ConcurrentLinkedWorkQueue();
+            case "LockedDeque":
+                return new LockedWorkQueue();
+            default:
+                throw new IllegalArgumentException("WorkStealingBenchmark: Unrecognized queue");
+        }
+    }
+
+    private static class Result {
+        public long nanos;
+        public long stolen;
+    }
+
+    private static Result run(String name, int thieves, Integer[] tasks) throws InterruptedException {
+        WorkQueue queue = newQueue(name);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong stolen = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(thieves);
+        CountDownLatch finished = new CountDownLatch(thieves);
+
+        for (int k = 0; k < thieves; k++) {
+            Thread thread = new Thread(() -> {
+                long count = 0;
+                started.countDown();
+                while (true) {
+                    boolean last = done.get();
+                    if (queue.steal() != null) {
+                        count++;
+                    } else if (last) {
+                        break;
+                    }
+                }
+                stolen.addAndGet(count);
+                finished.countDown();
+            });
+            thread.start();
+        }
+        started.await();
+
+        long start = System.nanoTime();
+        int next = 0;
+        int burst = 1;
+        while (next < tasks.length) {
+            for (int i = 0; i < burst && next < tasks.length; i++) {
+                queue.add(tasks[next++]);
+            }
+            for (int i = 0; i < burst / 2; i++) {
+                if (queue.take() == null) break;
+            }
+            burst = burst == MAX_BURST ? 1 : burst * 2;
+        }
+        while (queue.take() != null) {
+            // drain what the thieves left
+        }
+        done.set(true);
+        finished.await();
+
+        Result result = new Result();
+        result.nanos = System.nanoTime() - start;
+        result.stolen = stolen.get();
+        return result;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] thiefCounts = DEFAULT_THIEVES;
+
+        if (args.length > 0) {
+            thiefCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                thiefCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // boxed once up front, so every queue moves the same objects
+        Integer[] tasks = new Integer[TASKS];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = i;
+        }
+
+        StdOut.printf("%-22s %7s %14s %10s%n", "queue", "thieves", "tasks/s", "stolen");
+
+        for (int thieves : thiefCounts) {
+            for (String name : QUEUES) {
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    run(name, thieves, tasks);
+                }
+
+                long nanos = 0;
+                long stolen = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    Result result = run(name, thieves, tasks);
+                    nanos += result.nanos;
+                    stolen += result.stolen;
+                }
+
+                StdOut.printf("%-22s %7d %14.0f %9.1f%%%n", name, thieves,
+                        (double) TASKS * ITERATIONS / (nanos / 1e9),
+                        100.0 * stolen / ((double) TASKS * ITERATIONS));
+            }
+        }
+    }
+}
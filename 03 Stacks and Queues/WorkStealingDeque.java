@@ -0,0 +1,227 @@
+/* *****************************************************************************
+ *  Chase-Lev work-stealing deque.
+ *
+ *  One owner thread adds and removes at the back, any number of thieves
+ *  take from the front. The owner only races with thieves for the last
+ *  item, so its operations are a few plain reads and writes plus one fence;
+ *  thieves compete for the front with a CAS on top. The items live in a
+ *  circular array that the owner doubles when full; thieves still reading
+ *  the old array see the same items there.
+ *
+ *  Memory orders follow Le, Pop, Cohen and Zappa Nardelli, "Correct and
+ *  Efficient Work-Stealing for Weak Memory Models" (PPoPP 2013).
+ **************************************************************************** */
+import edu.princeton.cs.algs4.StdOut;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class WorkStealingDeque<Item> {
+    private static final int MIN_CAPACITY = 64;
+
+    private static final VarHandle TOP;
+    private static final VarHandle BOTTOM;
+    private static final VarHandle ITEMS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+            BOTTOM = lookup.findVarHandle(WorkStealingDeque.class, "bottom", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // index of the front item, only ever incremented, by a CAS
+    private volatile long top;
+    // index one past the back item, only written by the owner
+    private volatile long bottom;
+    // power-of-two length, item i at i & (length - 1); replaced only by the owner
+    private volatile Object[] items;
+
+    // construct an empty deque
+    public WorkStealingDeque() {
+        items = new Object[MIN_CAPACITY];
+    }
+
+    // is the deque empty? only a snapshot while other threads use it
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // return the number of items on the deque, only a snapshot while other
+    // threads use it
+    public int size() {
+        long b = (long) BOTTOM.getAcquire(this);
+        long t = (long) TOP.getAcquire(this);
+        return (int) Math.max(0, b - t);
+    }
+
+    // add the item to the back; owner thread only
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("item cannot be null");
+        }
+
+        long b = (long) BOTTOM.getOpaque(this);
+        long t = (long) TOP.getAcquire(this);
+        Object[] array = items;
+
+        if (b - t > array.length - 1) {
+            array = grow(array, t, b);
+        }
+
+        ITEMS.setOpaque(array, (int) b & (array.length - 1), item);
+        // publish the item before the new bottom
+        BOTTOM.setRelease(this, b + 1);
+    }
+
+    // remove and return the item from the back, or null if the deque is
+    // empty; owner thread only. Unlike Deque this does not throw, since a
+    // thief may empty the deque between isEmpty() and the call
+    @SuppressWarnings("unchecked")
+    public Item removeLast() {
+        long b = (long) BOTTOM.getOpaque(this) - 1;
+        Object[] array = items;
+        BOTTOM.setOpaque(this, b);
+        // thieves must see the lowered bottom before top is read
+        VarHandle.fullFence();
+        long t = (long) TOP.getOpaque(this);
+
+        if (t > b) {
+            BOTTOM.setOpaque(this, b + 1);
+            return null;
+        }
+
+        int index = (int) b & (array.length - 1);
+        Object item = ITEMS.getOpaque(array, index);
+
+        if (t == b) {
+            // the last item: race the thieves for it
+            if (!TOP.compareAndSet(this, t, t + 1)) {
+                item = null;
+            }
+            BOTTOM.setOpaque(this, b + 1);
+        } else {
+            // no thief can reach this slot, so drop the reference; slots
+            // emptied by thieves keep theirs until overwritten
+            ITEMS.setOpaque(array, index, null);
+        }
+
+        return (Item) item;
+    }
+
+    // remove and return the item from the front, or null if the deque is
+    // empty; any thread. Retries when another thread takes the same item
+    @SuppressWarnings("unchecked")
+    public Item stealFirst() {
+        while (true) {
+            long t = (long) TOP.getAcquire(this);
+            VarHandle.fullFence();
+            long b = (long) BOTTOM.getAcquire(this);
+
+            if (t >= b) {
+                return null;
+            }
+
+            Object[] array = items;
+            Object item = ITEMS.getOpaque(array, (int) t & (array.length - 1));
+
+            if (TOP.compareAndSet(this, t, t + 1)) {
+                return (Item) item;
+            }
+        }
+    }
+
+    // copies items [t, b) into an array twice as long and publishes it
+    private Object[] grow(Object[] array, long t, long b) {
+        Object[] grown = new Object[array.length * 2];
+
+        for (long i = t; i < b; i++) {
+            grown[(int) i & (grown.length - 1)] = array[(int) i & (array.length - 1)];
+        }
+
+        items = grown;
+        return grown;
+    }
+
+    // stress test: the owner adds 0 .. count - 1, removing some from the back
+    // as it goes, while thieves steal from the front; every item must be
+    // taken exactly once
+    // usage: WorkStealingDeque [thieves] [count] [rounds]
+    public static void main(String[] args) throws InterruptedException {
+        int thieves = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        for (int round = 0; round < rounds; round++) {
+            WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+            AtomicIntegerArray taken = new AtomicIntegerArray(count);
+            AtomicBoolean done = new AtomicBoolean();
+            CountDownLatch finished = new CountDownLatch(thieves);
+            long[] stolen = new long[thieves];
+
+            for (int k = 0; k < thieves; k++) {
+                final int thief = k;
+                Thread thread = new Thread(() -> {
+                    while (true) {
+                        // read done first: if it was set, the owner has
+                        // stopped adding and the last steal sees everything
+                        boolean last = done.get();
+                        Integer item = deque.stealFirst();
+                        if (item != null) {
+                            taken.incrementAndGet(item);
+                            stolen[thief]++;
+                        } else if (last) {
+                            break;
+                        }
+                    }
+                    finished.countDown();
+                });
+                thread.start();
+            }
+
+            // the owner alternates bursts of adds with shorter bursts of
+            // removes, so the deque both grows and runs dry
+            int next = 0;
+            int burst = 1;
+            while (next < count) {
+                for (int i = 0; i < burst && next < count; i++) {
+                    deque.addLast(next++);
+                }
+                for (int i = 0; i < burst / 2; i++) {
+                    Integer item = deque.removeLast();
+                    if (item == null) break;
+                    taken.incrementAndGet(item);
+                }
+                burst = burst == 4096 ? 1 : burst * 2;
+            }
+            for (Integer item = deque.removeLast(); item != null; item = deque.removeLast()) {
+                taken.incrementAndGet(item);
+            }
+            done.set(true);
+            finished.await();
+
+            int missing = 0;
+            int duplicates = 0;
+            for (int i = 0; i < count; i++) {
+                if (taken.get(i) == 0) missing++;
+                if (taken.get(i) > 1) duplicates++;
+            }
+            long totalStolen = 0;
+            for (long s : stolen) {
+                totalStolen += s;
+            }
+
+            boolean pass = missing == 0 && duplicates == 0 && deque.isEmpty();
+            StdOut.println("round " + round + ": stolen = " + totalStolen
+                    + ", missing = " + missing + ", duplicates = " + duplicates
+                    + (pass ? " --- Test Pass ---" : " --- Test FAIL ---"));
+            assert pass;
+        }
+    }
+}